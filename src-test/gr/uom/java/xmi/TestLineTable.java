@@ -0,0 +1,107 @@
+package gr.uom.java.xmi;
+
+import java.util.Map;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLineTable {
+
+	private static final String SOURCE =
+			"package p;\n" +
+			"\n" +
+			"public class A {\n" +
+			"\tprivate int x = 1;\n" +
+			"\n" +
+			"\tpublic int m(int y) {\n" +
+			"\t\tif (y > x) {\n" +
+			"\t\t\treturn y;\n" +
+			"\t\t}\n" +
+			"\t\treturn new Object() { public int hashCode() { return 2; } }.hashCode();\n" +
+			"\t}\n" +
+			"}\n";
+
+	@Test
+	public void testLineFeeds() {
+		assertSameLines(SOURCE);
+	}
+
+	@Test
+	public void testCarriageReturns() {
+		assertSameLines(SOURCE.replace("\n", "\r\n"));
+		assertSameLines(SOURCE.replace("\n", "\r"));
+	}
+
+	@Test
+	public void testWithoutFinalLineEnd() {
+		assertSameLines(SOURCE.substring(0, SOURCE.length() - 1));
+	}
+
+	@Test
+	public void testBlankLinesAtEnd() {
+		assertSameLines(SOURCE + "\n\n");
+		assertSameLines(SOURCE + "  \t ");
+	}
+
+	@Test
+	public void testSingleLine() {
+		assertSameLines("class A { int m() { return 1; } }");
+		assertSameLines("class A { int m() { return 1; } }\n");
+	}
+
+	@Test
+	public void testEmpty() {
+		assertSameLines("");
+		assertSameLines("\n");
+	}
+
+	@Test
+	public void testWithoutLineInformation() {
+		CompilationUnit cu = AST.newAST(AST.JLS8).newCompilationUnit();
+		LineTable lineTable = LineTable.of(cu, "p/A.java");
+		for (int position = -1; position <= 1; position++) {
+			assertSameLine(cu, lineTable, position);
+		}
+	}
+
+	/**
+	 * Check the lines and columns of the start and end of every node, and of every offset from before the start
+	 * to after the end of the file, against those of the compilation unit.
+	 */
+	private static void assertSameLines(String source) {
+		final CompilationUnit cu = parse(source);
+		final LineTable lineTable = LineTable.of(cu, "p/A.java");
+		Assert.assertSame(lineTable, LineTable.of(cu, "p/A.java"));
+		cu.accept(new ASTVisitor(true) {
+			@Override
+			public void preVisit(ASTNode node) {
+				assertSameLine(cu, lineTable, node.getStartPosition());
+				assertSameLine(cu, lineTable, node.getStartPosition() + node.getLength());
+			}
+		});
+		for (int position = -2; position <= source.length() + 2; position++) {
+			assertSameLine(cu, lineTable, position);
+		}
+	}
+
+	private static void assertSameLine(CompilationUnit cu, LineTable lineTable, int position) {
+		Assert.assertEquals("line at " + position, cu.getLineNumber(position), lineTable.getLineNumber(position));
+		Assert.assertEquals("column at " + position, cu.getColumnNumber(position), lineTable.getColumnNumber(position));
+	}
+
+	private static CompilationUnit parse(String source) {
+		ASTParser parser = ASTParser.newParser(AST.JLS8);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		Map<String, String> options = JavaCore.getOptions();
+		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+		parser.setCompilerOptions(options);
+		parser.setSource(source.toCharArray());
+		return (CompilationUnit) parser.createAST(null);
+	}
+}
@@ -0,0 +1,127 @@
+package org.refactoringminer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.rm1.StoredRefactoring;
+
+public class TestBinaryResultFormat {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<BinaryResultReader.Record> records = records(10000, 100);
+		Assert.assertEquals(toStrings(records), toStrings(read(write(records))));
+	}
+
+	@Test
+	public void testNewDictionary() throws IOException {
+		// enough distinct tokens to fill the dictionary several times
+		List<BinaryResultReader.Record> records = records(3 * BinaryResultWriter.MAXIMUM_DICTIONARY_SIZE, Integer.MAX_VALUE);
+		Assert.assertEquals(toStrings(records), toStrings(read(write(records))));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		Assert.assertTrue(read(write(new ArrayList<BinaryResultReader.Record>())).isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherVersion() throws IOException {
+		byte[] bytes = write(records(10, 10));
+		// the version follows the magic number
+		bytes[7] = (byte) (BinaryResultWriter.VERSION + 1);
+		read(bytes);
+	}
+
+	@Test
+	public void testConvertToCsv() throws Exception {
+		List<BinaryResultReader.Record> records = records(5000, 100);
+		File binaryFile = temporaryFolder.newFile("refactorings.rmb");
+		try (BinaryResultWriter writer = new BinaryResultWriter(new FileOutputStream(binaryFile))) {
+			for (BinaryResultReader.Record record : records) {
+				writer.write(record.getCommitId(), new StoredRefactoring(record.getRefactoringType(), record.getName(), record.getDescription()));
+			}
+		}
+		File csvFile = new File(temporaryFolder.getRoot(), "refactorings.csv");
+		RefactoringMiner.main(new String[] {"-convert", binaryFile.getPath(), csvFile.getPath()});
+
+		List<String> expected = new ArrayList<String>();
+		expected.add(RefactoringMiner.getResultHeader());
+		for (BinaryResultReader.Record record : records) {
+			expected.add(RefactoringMiner.getResultRefactoringDescription(record.getCommitId(), record.getName(), record.getDescription()));
+		}
+		Assert.assertEquals(expected, Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return Refactorings of random types in runs of the same commit, with descriptions made of the given number
+	 * of distinct tokens at most.
+	 */
+	private static List<BinaryResultReader.Record> records(int count, int distinctTokens) {
+		Random random = new Random(count);
+		RefactoringType[] types = RefactoringType.values();
+		List<BinaryResultReader.Record> records = new ArrayList<BinaryResultReader.Record>();
+		String commitId = null;
+		for (int i = 0; i < count; i++) {
+			if (commitId == null || random.nextInt(4) == 0) {
+				commitId = String.format("%040x", random.nextLong() & Long.MAX_VALUE);
+			}
+			RefactoringType type = types[random.nextInt(types.length)];
+			// the descriptions of the refactorings detected by the miner start with their name
+			String name = random.nextInt(10) == 0 ? "Other " + type.getDisplayName() : type.getDisplayName();
+			String details = "m" + (i % distinctTokens) + "() : void in class p.C" + random.nextInt(50) + " ";
+			String description = random.nextBoolean() ? name + "\t" + details : details;
+			records.add(new BinaryResultReader.Record(commitId, type, name, description));
+		}
+		return records;
+	}
+
+	private static byte[] write(List<BinaryResultReader.Record> records) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BinaryResultWriter writer = new BinaryResultWriter(bytes)) {
+			for (int i = 0; i < records.size(); i++) {
+				BinaryResultReader.Record record = records.get(i);
+				writer.write(record.getCommitId(), record.getRefactoringType(), record.getName(), record.getDescription());
+				if (i % 1000 == 999) {
+					// blocks shorter than the full ones
+					writer.flush();
+				}
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static List<BinaryResultReader.Record> read(byte[] bytes) throws IOException {
+		List<BinaryResultReader.Record> records = new ArrayList<BinaryResultReader.Record>();
+		try (BinaryResultReader reader = new BinaryResultReader(new ByteArrayInputStream(bytes))) {
+			while (reader.hasNext()) {
+				records.add(reader.next());
+			}
+		}
+		return records;
+	}
+
+	private static List<String> toStrings(List<BinaryResultReader.Record> records) {
+		List<String> strings = new ArrayList<String>();
+		for (BinaryResultReader.Record record : records) {
+			strings.add(record.getCommitId() + ";" + record.getRefactoringType() + ";" + record.getName() + ";" + record.getDescription());
+		}
+		return strings;
+	}
+}
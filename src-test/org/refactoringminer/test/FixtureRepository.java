@@ -0,0 +1,165 @@
+package org.refactoringminer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * A local git repository with a short history of refactorings, so that the ways of mining a history can be
+ * compared without cloning a remote project.
+ */
+public class FixtureRepository {
+
+	private static final String CIRCLE =
+			"package shapes;\n" +
+			"public class Circle {\n" +
+			"  private double radius;\n" +
+			"  public Circle(double radius) {\n" +
+			"    this.radius = radius;\n" +
+			"  }\n" +
+			"  public double %s() {\n" +
+			"    return Math.PI * radius * radius;\n" +
+			"  }\n" +
+			"  public String describe() {\n" +
+			"    StringBuilder sb = new StringBuilder();\n" +
+			"    sb.append(\"circle of radius \");\n" +
+			"    sb.append(radius);\n" +
+			"    sb.append(\" and area \");\n" +
+			"    sb.append(%s());\n" +
+			"    return sb.toString();\n" +
+			"  }\n" +
+			"}\n";
+
+	private static final String FORMAT =
+			"package %s;\n" +
+			"public class Format {\n" +
+			"  public static String table(String[] names, double[] values) {\n" +
+			"    StringBuilder sb = new StringBuilder();\n" +
+			"    for (int i = 0; i < names.length; i++) {\n" +
+			"%s" +
+			"    }\n" +
+			"    return sb.toString();\n" +
+			"  }\n" +
+			"%s" +
+			"}\n";
+
+	private static final String ROW_INLINE =
+			"      sb.append(names[i]);\n" +
+			"      sb.append(\": \");\n" +
+			"      sb.append(String.format(\"%.2f\", values[i]));\n" +
+			"      sb.append(\"\\n\");\n";
+
+	private static final String ROW_CALL = "      row(sb, names[i], values[i]);\n";
+
+	private static final String ROW_METHOD =
+			"  private static void row(StringBuilder sb, String name, double value) {\n" +
+			"    sb.append(name);\n" +
+			"    sb.append(\": \");\n" +
+			"    sb.append(String.format(\"%.2f\", value));\n" +
+			"    sb.append(\"\\n\");\n" +
+			"  }\n";
+
+	private static final String SQUARE =
+			"package shapes;\n" +
+			"public class %s {\n" +
+			"  private final double side;\n" +
+			"  public %s(double side) {\n" +
+			"    this.side = side;\n" +
+			"  }\n" +
+			"  public double getSide() {\n" +
+			"    return side;\n" +
+			"  }\n" +
+			"  public double perimeter() {\n" +
+			"    double total = 0;\n" +
+			"    for (int i = 0; i < 4; i++) {\n" +
+			"      total += side;\n" +
+			"    }\n" +
+			"    return total;\n" +
+			"  }\n" +
+			"}\n";
+
+	private static final String README = "Shapes and their formatting.\n";
+
+	private final File folder;
+	private final Git git;
+	private long time = 1514764800000L;
+
+	private FixtureRepository(File folder) throws GitAPIException {
+		this.folder = folder;
+		this.git = Git.init().setDirectory(folder).call();
+	}
+
+	/**
+	 * Create the repository in an empty folder. Its commits rename a method, extract a method, move a class to
+	 * another package and rename a class, interleaved with commits without refactorings, one month apart.
+	 */
+	public static File create(File folder) throws IOException, GitAPIException {
+		FixtureRepository repository = new FixtureRepository(folder);
+		try {
+			Map<String, String> files = new LinkedHashMap<String, String>();
+			files.put("src/shapes/Circle.java", String.format(CIRCLE, "area", "area"));
+			files.put("src/shapes/Square.java", String.format(SQUARE, "Square", "Square"));
+			files.put("src/util/Format.java", String.format(FORMAT, "util", ROW_INLINE.replace("%", "%%"), ""));
+			repository.commit("Add the shapes", files);
+
+			files.clear();
+			files.put("src/shapes/Circle.java", String.format(CIRCLE, "computeArea", "computeArea"));
+			repository.commit("Rename the area of circles", files);
+
+			files.clear();
+			files.put("README", README);
+			repository.commit("Add a readme", files);
+
+			files.clear();
+			files.put("src/util/Format.java", String.format(FORMAT, "util", ROW_CALL, ROW_METHOD.replace("%", "%%")));
+			repository.commit("Extract the formatting of a row", files);
+
+			files.clear();
+			files.put("src/util/Format.java", null);
+			files.put("src/format/Format.java", String.format(FORMAT, "format", ROW_CALL, ROW_METHOD.replace("%", "%%")));
+			repository.commit("Move the formatting to its own package", files);
+
+			files.clear();
+			files.put("src/shapes/Square.java", null);
+			files.put("src/shapes/Quad.java", String.format(SQUARE, "Quad", "Quad"));
+			repository.commit("Rename squares", files);
+
+			files.clear();
+			files.put("README", README + "Run the tests before committing.\n");
+			repository.commit("Update the readme", files);
+		} finally {
+			repository.git.close();
+		}
+		return folder;
+	}
+
+	/**
+	 * Commit the given files, where a null content deletes the file.
+	 */
+	private RevCommit commit(String message, Map<String, String> files) throws IOException, GitAPIException {
+		for (Map.Entry<String, String> file : files.entrySet()) {
+			File path = new File(folder, file.getKey());
+			if (file.getValue() == null) {
+				git.rm().addFilepattern(file.getKey()).call();
+			} else {
+				path.getParentFile().mkdirs();
+				Files.write(path.toPath(), file.getValue().getBytes(StandardCharsets.UTF_8));
+				git.add().addFilepattern(file.getKey()).call();
+			}
+		}
+		PersonIdent author = new PersonIdent("Fixture", "fixture@example.com", new Date(time), TimeZone.getTimeZone("UTC"));
+		// a month later, so that the commits fall in different months
+		time += 31L * 24 * 60 * 60 * 1000;
+		return git.commit().setMessage(message).setAuthor(author).setCommitter(author).call();
+	}
+}
@@ -0,0 +1,116 @@
+package org.refactoringminer.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.refactoringminer.util.CommitJournal;
+
+public class TestCommitJournal {
+
+	private static final int RECORD_LENGTH = Constants.OBJECT_ID_LENGTH;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLoad() throws IOException {
+		File file = new File(temporaryFolder.getRoot(), "journal");
+		List<ObjectId> commits = commits(5000);
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			for (ObjectId commit : commits.subList(0, 2500)) {
+				journal.add(commit);
+			}
+			// added twice, recorded once
+			journal.add(commits.get(0));
+			Assert.assertEquals(2500, journal.size());
+		}
+		Assert.assertEquals(2500 * RECORD_LENGTH, file.length());
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			Assert.assertEquals(2500, journal.size());
+			for (int i = 0; i < commits.size(); i++) {
+				Assert.assertEquals(i < 2500, journal.contains(commits.get(i)));
+			}
+			for (ObjectId commit : commits.subList(2500, 5000)) {
+				journal.add(commit);
+			}
+		}
+		try (CommitJournal journal = new CommitJournal(file, 1000)) {
+			Assert.assertEquals(5000, journal.size());
+			for (ObjectId commit : commits) {
+				Assert.assertTrue(journal.contains(commit));
+			}
+		}
+		Assert.assertEquals(5000 * RECORD_LENGTH, file.length());
+	}
+
+	@Test
+	public void testCompactDuplicates() throws IOException {
+		File file = new File(temporaryFolder.getRoot(), "journal");
+		List<ObjectId> commits = commits(100);
+		// two runs appending to the same journal
+		try (CommitJournal first = new CommitJournal(file, 0);
+				CommitJournal second = new CommitJournal(file, 0)) {
+			for (ObjectId commit : commits.subList(0, 60)) {
+				first.add(commit);
+			}
+			for (ObjectId commit : commits.subList(40, 100)) {
+				second.add(commit);
+			}
+		}
+		Assert.assertEquals(120 * RECORD_LENGTH, file.length());
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			Assert.assertEquals(100, journal.size());
+			for (ObjectId commit : commits) {
+				Assert.assertTrue(journal.contains(commit));
+			}
+		}
+		Assert.assertEquals(100 * RECORD_LENGTH, file.length());
+	}
+
+	@Test
+	public void testTornRecord() throws IOException {
+		File file = new File(temporaryFolder.getRoot(), "journal");
+		List<ObjectId> commits = commits(11);
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			for (ObjectId commit : commits.subList(0, 10)) {
+				journal.add(commit);
+			}
+		}
+		// a crash in the middle of appending the last commit
+		byte[] record = new byte[RECORD_LENGTH];
+		commits.get(10).copyRawTo(record, 0);
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(record, 0, 7);
+		}
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			Assert.assertEquals(10, journal.size());
+			Assert.assertFalse(journal.contains(commits.get(10)));
+			Assert.assertEquals(10 * RECORD_LENGTH, file.length());
+			journal.add(commits.get(10));
+		}
+		try (CommitJournal journal = new CommitJournal(file, 0)) {
+			Assert.assertEquals(11, journal.size());
+			for (ObjectId commit : commits) {
+				Assert.assertTrue(journal.contains(commit));
+			}
+		}
+	}
+
+	private static List<ObjectId> commits(int count) {
+		List<ObjectId> commits = new ArrayList<ObjectId>();
+		for (int i = 0; i < count; i++) {
+			// distinct in their first 8 bytes, which are all the journal keeps in memory
+			commits.add(ObjectId.fromString(String.format("%016x%024x", 0x9e3779b97f4a7c15L * (i + 1), i)));
+		}
+		return commits;
+	}
+}
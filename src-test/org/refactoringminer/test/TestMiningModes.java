@@ -0,0 +1,132 @@
+package org.refactoringminer.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
+import org.refactoringminer.rm1.UMLClassCache;
+import org.refactoringminer.util.GitServiceImpl;
+
+/**
+ * Checks that the parallel, rolling and cached ways of mining a history find the same refactorings as the
+ * sequential analysis of checked out commits.
+ */
+public class TestMiningModes {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Repository repository;
+	private Map<String, List<String>> expected;
+
+	@Before
+	public void mineCheckedOutCommits() throws Exception {
+		File folder = FixtureRepository.create(temporaryFolder.newFolder("fixture"));
+		repository = new GitServiceImpl().openRepository(folder.getPath());
+		expected = mine(new GitHistoryRefactoringMinerImpl());
+		// every commit but the root, which has no parent to diff with
+		Assert.assertEquals(6, expected.size());
+		List<String> all = new ArrayList<String>();
+		for (List<String> refactorings : expected.values()) {
+			all.addAll(refactorings);
+		}
+		Assert.assertTrue(all.toString(), containsType(all, "Rename Method"));
+		Assert.assertTrue(all.toString(), containsType(all, "Extract Method"));
+		Assert.assertTrue(all.toString(), containsType(all, "Move Class"));
+		Assert.assertTrue(all.toString(), containsType(all, "Rename Class"));
+	}
+
+	@After
+	public void closeRepository() {
+		repository.close();
+	}
+
+	@Test
+	public void testCheckoutFree() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		Assert.assertEquals(expected, mine(miner));
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setNumberOfThreads(3);
+		Assert.assertEquals(expected, mine(miner));
+		miner.setDeliverInCompletionOrder(true);
+		Assert.assertEquals(expected, mine(miner));
+	}
+
+	@Test
+	public void testRollingProjectModel() throws Exception {
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		miner.setRollingProjectModel(true);
+		Assert.assertEquals(expected, mine(miner));
+	}
+
+	@Test
+	public void testUMLClassCache() throws Exception {
+		UMLClassCache cache = new UMLClassCache(1000, 10000000L);
+		GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+		miner.setCheckoutFree(true);
+		miner.setUMLClassCache(cache);
+		Assert.assertEquals(expected, mine(miner));
+		Assert.assertTrue(cache.toString(), cache.getHitCount() > 0);
+		// a second run finds every file version in the cache
+		long missCount = cache.getMissCount();
+		Assert.assertEquals(expected, mine(miner));
+		Assert.assertEquals(cache.toString(), missCount, cache.getMissCount());
+		miner.setNumberOfThreads(3);
+		Assert.assertEquals(expected, mine(miner));
+		miner.setNumberOfThreads(1);
+		miner.setRollingProjectModel(true);
+		Assert.assertEquals(expected, mine(miner));
+	}
+
+	/**
+	 * @return The sorted descriptions of the refactorings found at each commit, by commit.
+	 */
+	private Map<String, List<String>> mine(GitHistoryRefactoringMinerImpl miner) throws Exception {
+		final Map<String, List<String>> result = new TreeMap<String, List<String>>();
+		miner.detectBetweenCommits(repository, "master", null, new RefactoringHandler() {
+			@Override
+			public void handle(String commitId, List<Refactoring> refactorings) {
+				List<String> descriptions = new ArrayList<String>();
+				for (Refactoring refactoring : refactorings) {
+					descriptions.add(refactoring.toString());
+				}
+				Collections.sort(descriptions);
+				Assert.assertNull("Commit handled twice: " + commitId, result.put(commitId, descriptions));
+			}
+
+			@Override
+			public void handleException(String commitId, Exception e) {
+				throw new AssertionError("Commit " + commitId + " failed", e);
+			}
+		});
+		return result;
+	}
+
+	private static boolean containsType(List<String> refactorings, String displayName) {
+		for (String refactoring : refactorings) {
+			if (refactoring.startsWith(displayName + "\t")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
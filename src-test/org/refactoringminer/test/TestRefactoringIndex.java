@@ -0,0 +1,161 @@
+package org.refactoringminer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.refactoringminer.RefactoringIndex;
+import org.refactoringminer.RefactoringIndexWriter;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
+import org.refactoringminer.util.GitServiceImpl;
+
+/**
+ * Queries an index of the refactorings of the fixture repository, which has one refactoring in each of
+ * February, April, May and June 2018. The refactorings are indexed from the newest commit.
+ */
+public class TestRefactoringIndex {
+
+	private static final String RENAME_METHOD = "Rename Method\tpublic area() : double renamed to public computeArea() : double in class shapes.Circle";
+	private static final String EXTRACT_METHOD = "Extract Method\tprivate row(sb StringBuilder, name String, value double) : void extracted from public table(names String[], values double[]) : String in class util.Format";
+	private static final String MOVE_CLASS = "Move Class\tutil.Format moved to format.Format";
+	private static final String RENAME_CLASS = "Rename Class\tshapes.Square renamed to shapes.Quad";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private RefactoringIndex index;
+
+	@Before
+	public void indexFixture() throws Exception {
+		File indexFolder = temporaryFolder.newFolder("index");
+		File folder = FixtureRepository.create(temporaryFolder.newFolder("fixture"));
+		try (Repository repository = new GitServiceImpl().openRepository(folder.getPath());
+				final RefactoringIndexWriter indexWriter = new RefactoringIndexWriter(indexFolder)) {
+			GitHistoryRefactoringMinerImpl miner = new GitHistoryRefactoringMinerImpl();
+			miner.setCheckoutFree(true);
+			miner.detectBetweenCommits(repository, "master", null, new RefactoringHandler() {
+				@Override
+				public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+					try {
+						indexWriter.add(commitData, refactorings);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+		}
+		index = RefactoringIndex.open(indexFolder);
+	}
+
+	@After
+	public void closeIndex() throws IOException {
+		index.close();
+	}
+
+	@Test
+	public void testAll() throws IOException {
+		Assert.assertEquals(4, index.size());
+		Assert.assertEquals(descriptions(RENAME_CLASS, MOVE_CLASS, EXTRACT_METHOD, RENAME_METHOD), find(new RefactoringIndex.Query()));
+	}
+
+	@Test
+	public void testClass() throws IOException {
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		query.setClassName("util.Format");
+		Assert.assertEquals(descriptions(MOVE_CLASS, EXTRACT_METHOD), find(query));
+		query.setClassName("shapes.Quad");
+		Assert.assertEquals(descriptions(RENAME_CLASS), find(query));
+		query.setClassName("shapes.Triangle");
+		Assert.assertEquals(descriptions(), find(query));
+	}
+
+	@Test
+	public void testMethod() throws IOException {
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		query.setMethod("shapes.Circle#area()");
+		Assert.assertEquals(descriptions(RENAME_METHOD), find(query));
+		query.setMethod("shapes.Circle#computeArea()");
+		Assert.assertEquals(descriptions(RENAME_METHOD), find(query));
+		query.setMethod("util.Format#row(StringBuilder,String,double)");
+		Assert.assertEquals(descriptions(EXTRACT_METHOD), find(query));
+		query.setMethod("util.Format#table(String[],double[])");
+		Assert.assertEquals(descriptions(EXTRACT_METHOD), find(query));
+	}
+
+	@Test
+	public void testType() throws IOException {
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		query.setRefactoringType(RefactoringType.MOVE_CLASS);
+		Assert.assertEquals(descriptions(MOVE_CLASS), find(query));
+		query.setClassName("util.Format");
+		Assert.assertEquals(descriptions(MOVE_CLASS), find(query));
+		query.setClassName("shapes.Circle");
+		Assert.assertEquals(descriptions(), find(query));
+		Assert.assertEquals(0, index.count(query));
+	}
+
+	@Test
+	public void testMonths() throws IOException {
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		query.setMonths("2018-04", "2018-05");
+		Assert.assertEquals(descriptions(MOVE_CLASS, EXTRACT_METHOD), find(query));
+		query.setMonths("2018-05", null);
+		Assert.assertEquals(descriptions(RENAME_CLASS, MOVE_CLASS), find(query));
+		query.setMonths(null, "2018-02");
+		Assert.assertEquals(descriptions(RENAME_METHOD), find(query));
+		query.setMonths("2018-07", null);
+		Assert.assertEquals(0, index.count(query));
+	}
+
+	@Test
+	public void testCountByMonth() {
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		SortedMap<String, Map<RefactoringType, Integer>> expected = new TreeMap<String, Map<RefactoringType, Integer>>();
+		expected.put("2018-02", count(RefactoringType.RENAME_METHOD));
+		expected.put("2018-04", count(RefactoringType.EXTRACT_OPERATION));
+		expected.put("2018-05", count(RefactoringType.MOVE_CLASS));
+		expected.put("2018-06", count(RefactoringType.RENAME_CLASS));
+		Assert.assertEquals(expected, index.countByMonth(query));
+		query.setClassName("util.Format");
+		expected.remove("2018-02");
+		expected.remove("2018-06");
+		Assert.assertEquals(expected, index.countByMonth(query));
+	}
+
+	private List<String> find(RefactoringIndex.Query query) throws IOException {
+		List<String> descriptions = new ArrayList<String>();
+		for (RefactoringIndex.Record record : index.find(query)) {
+			descriptions.add(record.getDescription());
+		}
+		return descriptions;
+	}
+
+	private static List<String> descriptions(String... descriptions) {
+		List<String> list = new ArrayList<String>();
+		Collections.addAll(list, descriptions);
+		return list;
+	}
+
+	private static Map<RefactoringType, Integer> count(RefactoringType type) {
+		Map<RefactoringType, Integer> counts = new EnumMap<RefactoringType, Integer>(RefactoringType.class);
+		counts.put(type, 1);
+		return counts;
+	}
+}
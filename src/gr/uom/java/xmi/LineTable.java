@@ -0,0 +1,117 @@
+package gr.uom.java.xmi;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * The line ends of a parsed file, shared by the locations of its nodes, which look up their lines and columns
+ * only when they are needed. The lines and columns are the ones of {@link CompilationUnit#getLineNumber(int)} and
+ * {@link CompilationUnit#getColumnNumber(int)}.
+ */
+class LineTable {
+	private static final String PROPERTY = LineTable.class.getName();
+
+	private final String filePath;
+	// null when the compilation unit had no line information
+	private final int[] lineEnds;
+	private final int end;
+
+	private LineTable(String filePath, int[] lineEnds, int end) {
+		this.filePath = filePath;
+		this.lineEnds = lineEnds;
+		this.end = end;
+	}
+
+	/**
+	 * @return The line table of a compilation unit, built on the first call and kept as a property of the unit.
+	 */
+	static LineTable of(CompilationUnit cu, String filePath) {
+		Object property = cu.getProperty(PROPERTY);
+		if(property instanceof LineTable && ((LineTable)property).filePath.equals(filePath)) {
+			return (LineTable)property;
+		}
+		LineTable lineTable = new LineTable(filePath.intern(), lineEnds(cu), cu.getStartPosition() + cu.getLength());
+		cu.setProperty(PROPERTY, lineTable);
+		return lineTable;
+	}
+
+	private static int[] lineEnds(CompilationUnit cu) {
+		if(cu.getPosition(1, 0) == -2) {
+			return null;
+		}
+		// a line starts after the end of the previous one. The end of the last line is left out when the
+		// file ends with it, since the lines and columns of the positions in the file are the same without it
+		int[] lineEnds = new int[64];
+		int count = 0;
+		for(int start = cu.getPosition(2, 0); start > 0; start = cu.getPosition(count + 2, 0)) {
+			if(count == lineEnds.length) {
+				int[] grown = new int[count * 2];
+				System.arraycopy(lineEnds, 0, grown, 0, count);
+				lineEnds = grown;
+			}
+			lineEnds[count++] = start - 1;
+		}
+		if(count == 0 && cu.getLineNumber(-1) == -1) {
+			// the only line ends the file, which makes a difference for the positions before the file
+			int end = cu.getStartPosition() + cu.getLength() - 1;
+			while(cu.getLineNumber(end + 1) == 1) {
+				end++;
+			}
+			return new int[] {end};
+		}
+		int[] trimmed = new int[count];
+		System.arraycopy(lineEnds, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	String getFilePath() {
+		return filePath;
+	}
+
+	int getLineNumber(int position) {
+		if(lineEnds == null) {
+			return -2;
+		}
+		int length = lineEnds.length;
+		if(length == 0) {
+			return position >= end ? -1 : 1;
+		}
+		if(position < 0) {
+			return -1;
+		}
+		if(position <= lineEnds[0]) {
+			return 1;
+		}
+		int low = 0;
+		int high = length - 1;
+		if(position > lineEnds[high]) {
+			return position >= end ? -1 : length + 1;
+		}
+		// the line end at high is at or after the position and the one at low is before it
+		while(low + 1 != high) {
+			int middle = low + (high - low) / 2;
+			if(position <= lineEnds[middle]) {
+				high = middle;
+			}
+			else {
+				low = middle;
+			}
+		}
+		return low + 2;
+	}
+
+	int getColumnNumber(int position) {
+		if(lineEnds == null) {
+			return -2;
+		}
+		int line = getLineNumber(position);
+		if(line == -1) {
+			return -1;
+		}
+		if(line == 1) {
+			return position >= end ? -1 : position;
+		}
+		int lineStart = lineEnds[line - 2] + 1;
+		int lineEnd = line == lineEnds.length + 1 ? end - 1 : lineEnds[line - 1];
+		return lineStart > lineEnd ? -1 : position - lineStart;
+	}
+}
@@ -6,39 +6,18 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import gr.uom.java.xmi.diff.CodeRange;
 
 public class LocationInfo {
-	private String filePath;
-	private int startOffset;
-	private int endOffset; 
-	private int length;
-	private int startLine;
-	private int startColumn;
-	private int endLine;
-	private int endColumn;
+	private final LineTable lineTable;
+	private final int startOffset;
+	private final int length;
 	
 	public LocationInfo(CompilationUnit cu, String filePath, ASTNode node) {
-		this.filePath = filePath;
+		this.lineTable = LineTable.of(cu, filePath);
 		this.startOffset = node.getStartPosition();
 		this.length = node.getLength();
-		this.endOffset = startOffset + length;
-		
-		//lines are 1-based
-		this.startLine = cu.getLineNumber(startOffset);
-		this.endLine = cu.getLineNumber(endOffset);
-		//columns are 0-based
-		this.startColumn = cu.getColumnNumber(startOffset);
-		//convert to 1-based
-		if(this.startColumn > 0) {
-			this.startColumn += 1;
-		}
-		this.endColumn = cu.getColumnNumber(endOffset);
-		//convert to 1-based
-		if(this.endColumn > 0) {
-			this.endColumn += 1;
-		}
 	}
 
 	public String getFilePath() {
-		return filePath;
+		return lineTable.getFilePath();
 	}
 
 	public int getStartOffset() {
@@ -46,27 +25,37 @@ public class LocationInfo {
 	}
 
 	public int getEndOffset() {
-		return endOffset;
+		return startOffset + length;
 	}
 
 	public int getLength() {
 		return length;
 	}
 
+	//lines are 1-based
 	public int getStartLine() {
-		return startLine;
+		return lineTable.getLineNumber(getStartOffset());
 	}
 
 	public int getStartColumn() {
-		return startColumn;
+		return toOneBased(lineTable.getColumnNumber(getStartOffset()));
 	}
 
 	public int getEndLine() {
-		return endLine;
+		return lineTable.getLineNumber(getEndOffset());
 	}
 
 	public int getEndColumn() {
-		return endColumn;
+		return toOneBased(lineTable.getColumnNumber(getEndOffset()));
+	}
+
+	//columns are 0-based
+	private static int toOneBased(int column) {
+		//convert to 1-based
+		if(column > 0) {
+			column += 1;
+		}
+		return column;
 	}
 
 	public CodeRange codeRange() {
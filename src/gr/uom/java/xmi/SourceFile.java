@@ -0,0 +1,41 @@
+package gr.uom.java.xmi;
+
+import java.lang.ref.SoftReference;
+
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * The source of a parsed file, kept by the parts of the model that are built from its syntax tree when they are
+ * first needed, such as the bodies of the operations. The syntax tree is softly referenced, so it is parsed again
+ * only if it was collected since the file was last read.
+ */
+public class SourceFile {
+	private final String filePath;
+	private final String source;
+	private SoftReference<CompilationUnit> compilationUnit;
+
+	SourceFile(String filePath, String source, CompilationUnit compilationUnit) {
+		this.filePath = filePath;
+		this.source = source;
+		this.compilationUnit = new SoftReference<CompilationUnit>(compilationUnit);
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Callers reading the syntax tree should synchronize on this file, since syntax trees are not thread-safe.
+	 */
+	public synchronized CompilationUnit getCompilationUnit() {
+		CompilationUnit cu = compilationUnit.get();
+		if(cu == null) {
+			ASTParser parser = UMLModelASTReader.buildAstParser();
+			parser.setSource(source.toCharArray());
+			cu = (CompilationUnit)parser.createAST(null);
+			compilationUnit = new SoftReference<CompilationUnit>(cu);
+		}
+		return cu;
+	}
+}
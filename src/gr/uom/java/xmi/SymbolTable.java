@@ -0,0 +1,48 @@
+package gr.uom.java.xmi;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * The identifiers, type names and operators collected from the syntax trees, shared by all the models, so that a
+ * short text found in many statements and files is kept in memory once. Longer texts such as literals and the keys
+ * of invocations and creations are rarely repeated and are not interned. The table only weakly references its
+ * texts, so they are collected with the last model using them.
+ */
+public class SymbolTable {
+	private static final int STRIPES = 16;
+	private static final Stripe[] stripes = new Stripe[STRIPES];
+
+	static {
+		for(int i=0; i<STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	private SymbolTable() {
+	}
+
+	/**
+	 * @return The text equal to the given one that was interned first and is still used.
+	 */
+	public static String intern(String symbol) {
+		if(symbol == null) {
+			return null;
+		}
+		int hash = symbol.hashCode();
+		Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+		synchronized(stripe) {
+			WeakReference<String> reference = stripe.get(symbol);
+			String interned = reference != null ? reference.get() : null;
+			if(interned == null) {
+				stripe.put(symbol, new WeakReference<String>(symbol));
+				interned = symbol;
+			}
+			return interned;
+		}
+	}
+
+	// the texts are weak keys, mapped to weak references so that the values do not keep the keys reachable
+	private static class Stripe extends WeakHashMap<String, WeakReference<String>> {
+	}
+}
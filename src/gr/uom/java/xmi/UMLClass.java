@@ -167,6 +167,17 @@ public class UMLClass implements Comparable<UMLClass>, Serializable, LocationInf
 		return operations;
 	}
 
+	public void clearMappingState() {
+		for(UMLOperation operation : operations) {
+			operation.clearMappingState();
+		}
+		for(UMLAnonymousClass anonymousClass : anonymousClassList) {
+			for(UMLOperation operation : anonymousClass.getOperations()) {
+				operation.clearMappingState();
+			}
+		}
+	}
+
 	public List<UMLAttribute> getAttributes() {
 		return attributes;
 	}
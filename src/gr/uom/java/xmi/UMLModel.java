@@ -5,18 +5,29 @@ import gr.uom.java.xmi.diff.UMLModelDiff;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
+
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.util.Deadline;
 
 public class UMLModel {
 	private String projectRoot;
+	private Set<String> repositoryDirectories;
     private List<UMLClass> classList;
     private List<UMLGeneralization> generalizationList;
     private List<UMLRealization> realizationList;
 
     public UMLModel(String projectRoot) {
+    	this(projectRoot, null);
+    }
+
+    public UMLModel(String projectRoot, Set<String> repositoryDirectories) {
     	this.projectRoot = projectRoot;
+    	this.repositoryDirectories = repositoryDirectories;
         classList = new ArrayList<UMLClass>();
         generalizationList = new ArrayList<UMLGeneralization>();
         realizationList = new ArrayList<UMLRealization>();
@@ -34,6 +45,58 @@ public class UMLModel {
     	realizationList.add(umlRealization);
     }
 
+    public void addModel(UMLModel umlModel) {
+    	classList.addAll(umlModel.classList);
+    	generalizationList.addAll(umlModel.generalizationList);
+    	realizationList.addAll(umlModel.realizationList);
+    }
+
+    public void removeSourceFiles(Set<String> sourceFiles) {
+    	ListIterator<UMLClass> classIt = classList.listIterator();
+    	while(classIt.hasNext()) {
+    		if(sourceFiles.contains(classIt.next().getSourceFile()))
+    			classIt.remove();
+    	}
+    	ListIterator<UMLGeneralization> generalizationIt = generalizationList.listIterator();
+    	while(generalizationIt.hasNext()) {
+    		if(sourceFiles.contains(generalizationIt.next().getChild().getSourceFile()))
+    			generalizationIt.remove();
+    	}
+    	ListIterator<UMLRealization> realizationIt = realizationList.listIterator();
+    	while(realizationIt.hasNext()) {
+    		if(sourceFiles.contains(realizationIt.next().getClient().getSourceFile()))
+    			realizationIt.remove();
+    	}
+    }
+
+    //returns a model sharing the classes declared in the given files, in the same order as if only these files had been parsed
+    public UMLModel getSubModel(List<String> sourceFiles) {
+    	Map<String, UMLModel> modelPerFile = new LinkedHashMap<String, UMLModel>();
+    	for(String sourceFile : sourceFiles) {
+    		modelPerFile.put(sourceFile, new UMLModel(projectRoot, repositoryDirectories));
+    	}
+    	for(UMLClass umlClass : classList) {
+    		UMLModel fileModel = modelPerFile.get(umlClass.getSourceFile());
+    		if(fileModel != null)
+    			fileModel.addClass(umlClass);
+    	}
+    	for(UMLGeneralization umlGeneralization : generalizationList) {
+    		UMLModel fileModel = modelPerFile.get(umlGeneralization.getChild().getSourceFile());
+    		if(fileModel != null)
+    			fileModel.addGeneralization(umlGeneralization);
+    	}
+    	for(UMLRealization umlRealization : realizationList) {
+    		UMLModel fileModel = modelPerFile.get(umlRealization.getClient().getSourceFile());
+    		if(fileModel != null)
+    			fileModel.addRealization(umlRealization);
+    	}
+    	UMLModel subModel = new UMLModel(projectRoot, repositoryDirectories);
+    	for(UMLModel fileModel : modelPerFile.values()) {
+    		subModel.addModel(fileModel);
+    	}
+    	return subModel;
+    }
+
     public UMLClass getClass(UMLClass umlClassFromOtherModel) {
     	ListIterator<UMLClass> it = classList.listIterator();
         while(it.hasNext()) {
@@ -48,6 +111,15 @@ public class UMLModel {
         return this.classList;
     }
 
+    /**
+     * Clear the state left in the code fragments of the model by a diff, so that the model can be diffed again.
+     */
+    public void clearMappingState() {
+        for(UMLClass umlClass : classList) {
+            umlClass.clearMappingState();
+        }
+    }
+
     public List<UMLGeneralization> getGeneralizationList() {
         return this.generalizationList;
     }
@@ -118,7 +190,7 @@ public class UMLModel {
     		if(!this.classList.contains(umlClass))
     			modelDiff.reportAddedClass(umlClass);
     	}
-    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, new UMLClassMatcher.Move());
+    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, umlModel.repositoryDirectories, new UMLClassMatcher.Move());
     	modelDiff.checkForRenamedClasses(renamedFileHints, new UMLClassMatcher.Rename());
     	for(UMLGeneralization umlGeneralization : generalizationList) {
     		if(!umlModel.generalizationList.contains(umlGeneralization))
@@ -139,6 +211,7 @@ public class UMLModel {
     	}
     	modelDiff.checkForRealizationChanges();
     	for(UMLClass umlClass : classList) {
+    		Deadline.check(AnalysisPhase.DIFFING);
     		if(umlModel.classList.contains(umlClass)) {
     			UMLClassDiff classDiff = umlClass.diff(umlModel.getClass(umlClass));
     			if(!classDiff.isEmpty())
@@ -148,7 +221,7 @@ public class UMLModel {
     			}
     		}
     	}
-    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, new UMLClassMatcher.RelaxedMove());
+    	modelDiff.checkForMovedClasses(renamedFileHints, umlModel.projectRoot, umlModel.repositoryDirectories, new UMLClassMatcher.RelaxedMove());
     	modelDiff.checkForRenamedClasses(renamedFileHints, new UMLClassMatcher.RelaxedRename());
     	return modelDiff;
     }
@@ -2,10 +2,16 @@ package gr.uom.java.xmi;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -38,15 +44,19 @@ import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.dom.TypeParameter;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.util.Deadline;
 
 import gr.uom.java.xmi.decomposition.OperationBody;
 
 public class UMLModelASTReader {
 	public static final String systemFileSeparator = Matcher.quoteReplacement(File.separator);
+	private static final int FILES_PER_BATCH = 16;
 	
 	private UMLModel umlModel;
 	private String projectRoot;
 	private ASTParser parser;
+	private SourceFile currentSourceFile;
 
 	public UMLModelASTReader(File rootFolder, List<String> javaFiles) {
 		this(rootFolder, buildAstParser(rootFolder), javaFiles);
@@ -73,14 +83,128 @@ public class UMLModelASTReader {
 		this.parser.createASTs((String[]) filesArray, null, emptyArray, fileASTRequestor, null);
 	}
 
+	public UMLModelASTReader(File rootFolder, Map<String, String> javaFileContents, Set<String> repositoryDirectories) {
+		this.umlModel = new UMLModel(rootFolder.getPath(), repositoryDirectories);
+		this.projectRoot = rootFolder.getPath();
+		for(Map.Entry<String, String> javaFile : javaFileContents.entrySet()) {
+			//createAST resets the parser, so its options have to be set again for every file
+			this.parser = buildAstParser();
+			this.parser.setSource(javaFile.getValue().toCharArray());
+			CompilationUnit compilationUnit = (CompilationUnit)this.parser.createAST(null);
+			//the source is kept, so the operation bodies can be decomposed when they are first needed
+			this.currentSourceFile = new SourceFile(javaFile.getKey(), javaFile.getValue(), compilationUnit);
+			processCompilationUnit(javaFile.getKey(), compilationUnit);
+		}
+		this.currentSourceFile = null;
+	}
+
+	/**
+	 * Parse the files on the threads of the executor, in batches of files each parsed by its own parser, and merge
+	 * the classes of the batches in the order of {@code javaFiles}.
+	 */
+	public UMLModelASTReader(final File rootFolder, List<String> javaFiles, ExecutorService executor) {
+		this.umlModel = new UMLModel(rootFolder.getPath());
+		this.projectRoot = rootFolder.getPath();
+		List<Future<UMLModel>> batchModels = new ArrayList<Future<UMLModel>>();
+		for (int i = 0; i < javaFiles.size(); i += FILES_PER_BATCH) {
+			final List<String> batch = javaFiles.subList(i, Math.min(i + FILES_PER_BATCH, javaFiles.size()));
+			batchModels.add(executor.submit(Deadline.propagate(new Callable<UMLModel>() {
+				@Override
+				public UMLModel call() {
+					return new UMLModelASTReader(rootFolder, batch).getUmlModel();
+				}
+			})));
+		}
+		for (UMLModel batchModel : getAll(batchModels)) {
+			this.umlModel.addModel(batchModel);
+		}
+	}
+
+	/**
+	 * Start parsing the files on the threads of the executor, each file by its own parser, within the time budget
+	 * of the calling thread.
+	 */
+	public static ParsedFiles parseInParallel(final File rootFolder, Map<String, String> javaFileContents, ExecutorService executor) {
+		Map<String, Future<UMLModel>> fileModels = new LinkedHashMap<String, Future<UMLModel>>();
+		for (Map.Entry<String, String> javaFile : javaFileContents.entrySet()) {
+			final Map<String, String> fileContents = Collections.singletonMap(javaFile.getKey(), javaFile.getValue());
+			fileModels.put(javaFile.getKey(), executor.submit(Deadline.propagate(new Callable<UMLModel>() {
+				@Override
+				public UMLModel call() {
+					return new UMLModelASTReader(rootFolder, fileContents, null).getUmlModel();
+				}
+			})));
+		}
+		return new ParsedFiles(fileModels);
+	}
+
+	/**
+	 * The files being parsed by {@link UMLModelASTReader#parseInParallel(File, Map, ExecutorService)}.
+	 */
+	public static class ParsedFiles {
+		private final Map<String, Future<UMLModel>> fileModels;
+
+		private ParsedFiles(Map<String, Future<UMLModel>> fileModels) {
+			this.fileModels = fileModels;
+		}
+
+		/**
+		 * Wait for the files to be parsed.
+		 * 
+		 * @return The model of each file, in the order the files were given.
+		 */
+		public Map<String, UMLModel> get() {
+			List<UMLModel> models = getAll(new ArrayList<Future<UMLModel>>(fileModels.values()));
+			Map<String, UMLModel> result = new LinkedHashMap<String, UMLModel>();
+			int i = 0;
+			for (String filePath : fileModels.keySet()) {
+				result.put(filePath, models.get(i++));
+			}
+			return result;
+		}
+	}
+
+	private static List<UMLModel> getAll(List<Future<UMLModel>> futures) {
+		List<UMLModel> models = new ArrayList<UMLModel>(futures.size());
+		try {
+			for (Future<UMLModel> future : futures) {
+				models.add(future.get());
+			}
+			return models;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			// a timeout or a parser failure is rethrown as if the file was parsed on the calling thread
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (models.size() < futures.size()) {
+				for (Future<UMLModel> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+
 	private static ASTParser buildAstParser(File srcFolder) {
+		ASTParser parser = buildAstParser();
+		parser.setEnvironment(new String[0], new String[]{srcFolder.getPath()}, null, false);
+		return parser;
+	}
+
+	static ASTParser buildAstParser() {
 		ASTParser parser = ASTParser.newParser(AST.JLS8);
 		parser.setKind(ASTParser.K_COMPILATION_UNIT);
 		Map options = JavaCore.getOptions();
 		JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
 		parser.setCompilerOptions(options);
 		parser.setResolveBindings(false);
-		parser.setEnvironment(new String[0], new String[]{srcFolder.getPath()}, null, false);
 		return parser;
 	}
 
@@ -89,6 +213,7 @@ public class UMLModelASTReader {
 	}
 
 	protected void processCompilationUnit(String sourceFilePath, CompilationUnit compilationUnit) {
+		Deadline.check(AnalysisPhase.PARSING);
 		PackageDeclaration packageDeclaration = compilationUnit.getPackage();
 		String packageName = null;
 		if(packageDeclaration != null)
@@ -99,7 +224,7 @@ public class UMLModelASTReader {
 		List<ImportDeclaration> imports = compilationUnit.imports();
 		List<String> importedTypes = new ArrayList<String>();
 		for(ImportDeclaration importDeclaration : imports) {
-			importedTypes.add(importDeclaration.getName().getFullyQualifiedName());
+			importedTypes.add(SymbolTable.intern(importDeclaration.getName().getFullyQualifiedName()));
 		}
 		List<AbstractTypeDeclaration> topLevelTypeDeclarations = compilationUnit.types();
         for(AbstractTypeDeclaration abstractTypeDeclaration : topLevelTypeDeclarations) {
@@ -231,6 +356,7 @@ public class UMLModelASTReader {
 	}
 
 	private UMLOperation processMethodDeclaration(CompilationUnit cu, MethodDeclaration methodDeclaration, String packageName, String className, String sourceFile) {
+		Deadline.check(AnalysisPhase.PARSING);
 		String methodName = methodDeclaration.getName().getFullyQualifiedName();
 		LocationInfo locationInfo = generateLocationInfo(cu, sourceFile, methodDeclaration);
 		UMLOperation umlOperation = new UMLOperation(methodName, locationInfo);
@@ -270,7 +396,7 @@ public class UMLModelASTReader {
 		
 		Block block = methodDeclaration.getBody();
 		if(block != null) {
-			OperationBody body = new OperationBody(cu, sourceFile, block);
+			OperationBody body = currentSourceFile != null ? new OperationBody(currentSourceFile, block) : new OperationBody(cu, sourceFile, block);
 			umlOperation.setBody(body);
 			if(block.statements().size() == 0) {
 				umlOperation.setEmptyBody(true);
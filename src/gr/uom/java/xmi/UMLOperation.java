@@ -96,6 +96,11 @@ public class UMLOperation implements Comparable<UMLOperation>, Serializable, Loc
 		return operationBody;
 	}
 
+	public void clearMappingState() {
+		if(operationBody != null)
+			operationBody.clearMappingState();
+	}
+
 	public boolean hasTestAnnotation() {
 		return testAnnotation;
 	}
@@ -137,6 +137,10 @@ public abstract class AbstractCodeFragment implements LocationInfoProvider {
 		this.codeFragmentAfterReplacingParametersWithArguments = getString();
 	}
 
+	public void clearArgumentization() {
+		this.codeFragmentAfterReplacingParametersWithArguments = null;
+	}
+
 	public ObjectCreation creationCoveringEntireFragment() {
 		Map<String, ObjectCreation> creationMap = getCreationMap();
 		String statement = getString();
@@ -24,7 +24,8 @@ public class AbstractExpression extends AbstractCodeFragment {
     
     public AbstractExpression(CompilationUnit cu, String filePath, Expression expression) {
     	this.locationInfo = new LocationInfo(cu, filePath, expression);
-    	Visitor visitor = new Visitor(cu, filePath);
+    	NormalizedText text = NormalizedText.of(expression);
+    	Visitor visitor = new Visitor(cu, filePath, text);
     	expression.accept(visitor);
 		this.variables = visitor.getVariables();
 		this.types = visitor.getTypes();
@@ -34,7 +35,7 @@ public class AbstractExpression extends AbstractCodeFragment {
 		this.stringLiterals = visitor.getStringLiterals();
 		this.creationMap = visitor.getCreationMap();
 		this.infixOperators = visitor.getInfixOperators();
-    	this.expression = expression.toString();
+    	this.expression = text.get();
     	this.owner = null;
     }
 
@@ -0,0 +1,218 @@
+package gr.uom.java.xmi.decomposition;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.internal.core.dom.NaiveASTFlattener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The text of a statement or an expression, as printed by {@link ASTNode#toString()}, flattened once along with
+ * the offsets of its nested nodes, so that the text of a nested node is taken from the text of its root instead of
+ * flattening the node again.
+ *
+ * The flattener indents the nested statements of blocks and anonymous classes, so the text of a nested node
+ * spanning several lines or printed indented differs from its own {@link ASTNode#toString()}. These nodes,
+ * and the nodes of a root that could not be flattened, are flattened again on their own.
+ *
+ * The offsets are recorded by extending the flattener behind {@link ASTNode#toString()}, which is internal to JDT.
+ * It is checked once against {@link ASTNode#toString()} on a sample covering the kinds of statements and
+ * expressions, and when it is missing or prints differently every node is flattened on its own.
+ *
+ * The nodes and their offsets are kept in parallel arrays in the order the flattener visited them. A node is
+ * looked up from the position of the previous one outwards, since the nodes are looked up in nearly the same order.
+ */
+class NormalizedText {
+	private static final Logger logger = LoggerFactory.getLogger(NormalizedText.class);
+	private static final String SAMPLE =
+			"package p;\n" +
+			"import java.util.*;\n" +
+			"@SuppressWarnings(\"unchecked\") public class A<T extends Comparable<T>> extends B implements C {\n" +
+			"  private static final int[] N = {1, 2};\n" +
+			"  @Override public <E> List<E> m(final T t, String... s) throws Exception {\n" +
+			"    int i = 0, j = N.length;\n" +
+			"    List<E> list = new ArrayList<E>();\n" +
+			"    if (t != null && i < j || !s[0].isEmpty()) { i++; } else if (i > 1) i--; else { j = -i; }\n" +
+			"    for (int k = 0; k < j; k += 2) { list.add(null); }\n" +
+			"    for (String e : s) { if (e == null) continue; else break; }\n" +
+			"    while (i < j) { i = i << 1; }\n" +
+			"    do { j--; } while (j > 0);\n" +
+			"    label: synchronized (this) { switch (i) { case 1: i = 2; break label; default: return null; } }\n" +
+			"    try { throw new IllegalStateException(\"a \\\"b\\\"\" + 'c'); } catch (IllegalStateException | IllegalArgumentException e) { assert i > 0 : \"i\"; } finally { i = (int) 1L; }\n" +
+			"    try (java.io.Reader r = new java.io.StringReader(\"\")) { r.read(); }\n" +
+			"    Runnable r = new Runnable() { public void run() { System.out.println(this); } };\n" +
+			"    Comparator<String> c = (a, b) -> a.compareTo(b);\n" +
+			"    java.util.function.Function<String, Integer> f = String::length;\n" +
+			"    Object o = t instanceof String ? (String) t : super.toString();\n" +
+			"    class D { D() { this(1); } D(int x) { super(); } }\n" +
+			"    return i > 0 ? list : Collections.<E>emptyList();\n" +
+			"  }\n" +
+			"}\n";
+	private static final ASTNode[] NO_NODES = new ASTNode[0];
+	private static final int[] NO_OFFSETS = new int[0];
+	// whether the offsets of the nested nodes can be recorded
+	private static final boolean RANGES = checkRanges();
+	private static final AtomicBoolean failureLogged = new AtomicBoolean();
+
+	private final String text;
+	private final ASTNode[] nodes;
+	private final int[] starts;
+	private final int[] ends;
+	private final int count;
+	private int cursor = 0;
+
+	private NormalizedText(String text, ASTNode[] nodes, int[] starts, int[] ends, int count) {
+		this.text = text;
+		this.nodes = nodes;
+		this.starts = starts;
+		this.ends = ends;
+		this.count = count;
+	}
+
+	static NormalizedText of(ASTNode root) {
+		if(RANGES) {
+			try {
+				return RangeFlattener.flatten(root);
+			}
+			catch(RuntimeException e) {
+				// logged in full once, since a bug of the flattener is likely to fail on many nodes alike
+				if(failureLogged.compareAndSet(false, true)) {
+					logger.warn("Could not flatten a node with the offsets of its nested nodes, flattening them on their own", e);
+				}
+				else {
+					logger.debug("Could not flatten a node with the offsets of its nested nodes", e);
+				}
+			}
+		}
+		return new NormalizedText(root.toString(), NO_NODES, NO_OFFSETS, NO_OFFSETS, 0);
+	}
+
+	private static boolean checkRanges() {
+		try {
+			ASTParser parser = ASTParser.newParser(AST.JLS8);
+			parser.setKind(ASTParser.K_COMPILATION_UNIT);
+			Map<String, String> options = JavaCore.getOptions();
+			JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+			parser.setCompilerOptions(options);
+			parser.setSource(SAMPLE.toCharArray());
+			CompilationUnit cu = (CompilationUnit)parser.createAST(null);
+			final NormalizedText text = RangeFlattener.flatten(cu);
+			final boolean[] matches = {text.get().equals(cu.toString())};
+			cu.accept(new ASTVisitor(true) {
+				@Override
+				public void preVisit(ASTNode node) {
+					if(!text.get(node).equals(node.toString())) {
+						matches[0] = false;
+					}
+				}
+			});
+			if(!matches[0]) {
+				logger.info("The JDT flattener prints differently than expected, so every node is flattened on its own");
+			}
+			return matches[0];
+		}
+		catch(RuntimeException e) {
+			logger.info("The JDT flattener could not be extended, so every node is flattened on its own", e);
+			return false;
+		}
+		catch(LinkageError e) {
+			logger.info("The JDT flattener could not be extended, so every node is flattened on its own", e);
+			return false;
+		}
+	}
+
+	/**
+	 * @return The text of the root.
+	 */
+	String get() {
+		return text;
+	}
+
+	/**
+	 * @return The text of a node under the root, equal to {@code node.toString()}.
+	 */
+	String get(ASTNode node) {
+		int index = indexOf(node);
+		if(index != -1) {
+			int start = starts[index];
+			int end = ends[index];
+			if(start == 0 && end == text.length()) {
+				return text;
+			}
+			if(start < end && text.charAt(start) != ' ') {
+				int newLine = text.indexOf('\n', start);
+				if(newLine == -1 || newLine >= end - 1) {
+					return text.substring(start, end);
+				}
+			}
+		}
+		return node.toString();
+	}
+
+	private int indexOf(ASTNode node) {
+		for(int after = cursor, before = cursor - 1; after < count || before >= 0; after++, before--) {
+			if(after < count && nodes[after] == node) {
+				cursor = after;
+				return after;
+			}
+			if(before >= 0 && nodes[before] == node) {
+				cursor = before;
+				return before;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return Whether the text is the one printed by {@link ASTNode#toString()} for a node it could not flatten.
+	 */
+	static boolean isUnflattened(String text) {
+		return text.length() > 0 && text.charAt(0) == '!' && text.matches("!(\\w|\\.)*@\\w*");
+	}
+
+	// the only use of the internal flattener, which is not loaded when it is missing
+	private static class RangeFlattener extends NaiveASTFlattener {
+		private ASTNode[] nodes = new ASTNode[16];
+		private int[] starts = new int[16];
+		private int[] ends = new int[16];
+		private int count = 0;
+		// the indices of the nodes being visited, from the root to the current one
+		private int[] open = new int[16];
+		private int depth = 0;
+
+		private static NormalizedText flatten(ASTNode root) {
+			RangeFlattener flattener = new RangeFlattener();
+			root.accept(flattener);
+			return new NormalizedText(flattener.getResult(), flattener.nodes, flattener.starts, flattener.ends, flattener.count);
+		}
+
+		@Override
+		public boolean preVisit2(ASTNode node) {
+			if(count == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2 * count);
+				starts = Arrays.copyOf(starts, 2 * count);
+				ends = Arrays.copyOf(ends, 2 * count);
+			}
+			if(depth == open.length) {
+				open = Arrays.copyOf(open, 2 * depth);
+			}
+			nodes[count] = node;
+			starts[count] = buffer.length();
+			open[depth++] = count++;
+			return true;
+		}
+
+		@Override
+		public void postVisit(ASTNode node) {
+			ends[open[--depth]] = buffer.length();
+		}
+	}
+}
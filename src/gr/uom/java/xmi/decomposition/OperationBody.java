@@ -5,6 +5,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AssertStatement;
 import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BreakStatement;
@@ -20,6 +21,7 @@ import org.eclipse.jdt.core.dom.ExpressionStatement;
 import org.eclipse.jdt.core.dom.ForStatement;
 import org.eclipse.jdt.core.dom.IfStatement;
 import org.eclipse.jdt.core.dom.LabeledStatement;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.ReturnStatement;
 import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
 import org.eclipse.jdt.core.dom.Statement;
@@ -32,11 +34,28 @@ import org.eclipse.jdt.core.dom.TryStatement;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.WhileStatement;
 
+import gr.uom.java.xmi.SourceFile;
+
 public class OperationBody {
 
 	private CompositeStatementObject compositeStatement;
+	//the file and range of the body until its statements are decomposed
+	private volatile SourceFile sourceFile;
+	private int startOffset;
+	private int length;
 
 	public OperationBody(CompilationUnit cu, String filePath, Block methodBody) {
+		decompose(cu, filePath, methodBody);
+	}
+
+	//the statements are decomposed when the body is first read
+	public OperationBody(SourceFile sourceFile, Block methodBody) {
+		this.sourceFile = sourceFile;
+		this.startOffset = methodBody.getStartPosition();
+		this.length = methodBody.getLength();
+	}
+
+	private void decompose(CompilationUnit cu, String filePath, Block methodBody) {
 		this.compositeStatement = new CompositeStatementObject(cu, filePath, methodBody, 0, "{");
 		List<Statement> statements = methodBody.statements();
 		for(Statement statement : statements) {
@@ -45,23 +64,53 @@ public class OperationBody {
 	}
 
 	public int statementCount() {
-		return compositeStatement.statementCount();
+		return getCompositeStatement().statementCount();
 	}
 
 	public CompositeStatementObject getCompositeStatement() {
+		SourceFile file = this.sourceFile;
+		if(file != null) {
+			synchronized(file) {
+				if(this.sourceFile != null) {
+					CompilationUnit cu = file.getCompilationUnit();
+					ASTNode node = new NodeFinder(cu, startOffset, length).getCoveredNode();
+					if(!(node instanceof Block)) {
+						throw new IllegalStateException("No method body at " + startOffset + " in " + file.getFilePath());
+					}
+					decompose(cu, file.getFilePath(), (Block)node);
+					this.sourceFile = null;
+				}
+			}
+		}
 		return compositeStatement;
 	}
 
+	//clears the state left in the statements by the mapping of the body, which is not decomposed if it was never read
+	public void clearMappingState() {
+		if(sourceFile != null) {
+			return;
+		}
+		for(CompositeStatementObject composite : compositeStatement.getInnerNodes()) {
+			composite.clearArgumentization();
+			for(AbstractExpression expression : composite.getExpressions()) {
+				expression.clearArgumentization();
+			}
+		}
+		for(StatementObject leaf : compositeStatement.getLeaves()) {
+			leaf.clearArgumentization();
+		}
+	}
+
 	public List<String> getAllAnonymousClassDeclarations() {
-		return new ArrayList<String>(compositeStatement.getAllAnonymousClassDeclarations());
+		return new ArrayList<String>(getCompositeStatement().getAllAnonymousClassDeclarations());
 	}
 
 	public Set<OperationInvocation> getAllOperationInvocations() {
-		return new LinkedHashSet<OperationInvocation>(compositeStatement.getAllMethodInvocations().values());
+		return new LinkedHashSet<OperationInvocation>(getCompositeStatement().getAllMethodInvocations().values());
 	}
 
 	public List<String> getAllVariables() {
-		return new ArrayList<String>(compositeStatement.getAllVariables());
+		return new ArrayList<String>(getCompositeStatement().getAllVariables());
 	}
 
 	private void processStatement(CompilationUnit cu, String filePath, CompositeStatementObject parent, Statement statement) {
@@ -33,7 +33,8 @@ public class StatementObject extends AbstractStatement {
 	public StatementObject(CompilationUnit cu, String filePath, Statement statement, int depth) {
 		super();
 		this.locationInfo = new LocationInfo(cu, filePath, statement);
-		Visitor visitor = new Visitor(cu, filePath);
+		NormalizedText text = NormalizedText.of(statement);
+		Visitor visitor = new Visitor(cu, filePath, text);
 		statement.accept(visitor);
 		this.variables = visitor.getVariables();
 		this.types = visitor.getTypes();
@@ -44,7 +45,7 @@ public class StatementObject extends AbstractStatement {
 		this.creationMap = visitor.getCreationMap();
 		this.infixOperators = visitor.getInfixOperators();
 		setDepth(depth);
-		if(statement.toString().matches("!(\\w|\\.)*@\\w*")) {
+		if(NormalizedText.isUnflattened(text.get())) {
 			if(statement instanceof VariableDeclarationStatement) {
 				VariableDeclarationStatement variableDeclarationStatement = (VariableDeclarationStatement)statement;
 				StringBuilder sb = new StringBuilder();
@@ -101,11 +102,11 @@ public class StatementObject extends AbstractStatement {
 				this.statement = sb.toString();
 			}
 			else {
-				this.statement = statement.toString();
+				this.statement = text.get();
 			}
 		}
 		else {
-			this.statement = statement.toString();
+			this.statement = text.get();
 		}
 	}
 
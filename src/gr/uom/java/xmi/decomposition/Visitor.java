@@ -5,6 +5,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
 import org.eclipse.jdt.core.dom.ArrayCreation;
@@ -28,9 +29,12 @@ import org.eclipse.jdt.core.dom.ThisExpression;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.WildcardType;
 
+import gr.uom.java.xmi.SymbolTable;
+
 public class Visitor extends ASTVisitor {
 	private CompilationUnit cu;
 	private String filePath;
+	private NormalizedText text;
 	private List<String> allIdentifiers = new ArrayList<String>();
 	private List<String> invokedMethodNames = new ArrayList<String>();
 	private List<String> types = new ArrayList<String>();
@@ -42,22 +46,31 @@ public class Visitor extends ASTVisitor {
 	private List<String> infixOperators = new ArrayList<String>();
 
 	public Visitor(CompilationUnit cu, String filePath) {
+		this(cu, filePath, null);
+	}
+
+	Visitor(CompilationUnit cu, String filePath, NormalizedText text) {
 		this.cu = cu;
 		this.filePath = filePath;
+		this.text = text;
+	}
+
+	private String textOf(ASTNode node) {
+		return text != null ? text.get(node) : node.toString();
 	}
 
 	public boolean visit(InfixExpression node) {
-		infixOperators.add(node.getOperator().toString());
+		infixOperators.add(SymbolTable.intern(node.getOperator().toString()));
 		return super.visit(node);
 	}
 
 	public boolean visit(ClassInstanceCreation node) {
-		creationMap.put(node.toString(), new ObjectCreation(cu, filePath, node));
+		creationMap.put(textOf(node), new ObjectCreation(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(ArrayCreation node) {
-		creationMap.put(node.toString(), new ObjectCreation(cu, filePath, node));
+		creationMap.put(textOf(node), new ObjectCreation(cu, filePath, node));
 		return super.visit(node);
 	}
 
@@ -67,18 +80,18 @@ public class Visitor extends ASTVisitor {
 	}
 
 	public boolean visit(AnonymousClassDeclaration node) {
-		anonymousClassDeclarations.add(node.toString());
+		anonymousClassDeclarations.add(textOf(node));
 		return super.visit(node);
 	}
 
 	public boolean visit(StringLiteral node) {
-		stringLiterals.add(node.toString());
+		stringLiterals.add(textOf(node));
 		return super.visit(node);
 	}
 
 	public boolean visit(ThisExpression node) {
 		if(!(node.getParent() instanceof FieldAccess)) {
-			allIdentifiers.add(node.toString());
+			allIdentifiers.add(SymbolTable.intern(textOf(node)));
 		}
 		return super.visit(node);
 	}
@@ -86,42 +99,42 @@ public class Visitor extends ASTVisitor {
 	public boolean visit(SimpleName node) {
 		if(node.getParent() instanceof FieldAccess && ((FieldAccess)node.getParent()).getExpression() instanceof ThisExpression) {
 			FieldAccess fieldAccess = (FieldAccess)node.getParent();
-			allIdentifiers.add(fieldAccess.toString());
+			allIdentifiers.add(SymbolTable.intern(textOf(fieldAccess)));
 		}
 		else {
-			allIdentifiers.add(node.getIdentifier());
+			allIdentifiers.add(SymbolTable.intern(node.getIdentifier()));
 		}
 		return super.visit(node);
 	}
 	
 	public boolean visit(ArrayType node) {
-		types.add(node.toString());
+		types.add(SymbolTable.intern(textOf(node)));
 		return false;
 	}
 	
 	public boolean visit(ParameterizedType node) {
-		types.add(node.toString());
+		types.add(SymbolTable.intern(textOf(node)));
 		return false;
 	}
 	
 	public boolean visit(WildcardType node) {
-		types.add(node.toString());
+		types.add(SymbolTable.intern(textOf(node)));
 		return false;
 	}
 	
 	public boolean visit(QualifiedType node) {
-		types.add(node.toString());
+		types.add(SymbolTable.intern(textOf(node)));
 		return false;
 	}
 	
 	public boolean visit(PrimitiveType node) {
-		types.add(node.toString());
+		types.add(SymbolTable.intern(textOf(node)));
 		return false;
 	}
 	
 	public boolean visit(SimpleType node) {
 		Name name = node.getName();
-		types.add(name.getFullyQualifiedName());
+		types.add(SymbolTable.intern(name.getFullyQualifiedName()));
 		return false;
 	}
 	
@@ -129,7 +142,7 @@ public class Visitor extends ASTVisitor {
 		invokedMethodNames.add(node.getName().getIdentifier());
 		String expression = null;
 		if(node.getExpression() != null)
-			expression = node.getExpression().toString();
+			expression = textOf(node.getExpression());
 		String methodInvocation = null;
 		/*if(expression != null) {
 			if(expression.matches("!(\\w|\\.)*@\\w*")) {
@@ -140,12 +153,10 @@ public class Visitor extends ASTVisitor {
 			}
 		}*/
 		//else {
-			if(node.toString().matches("!(\\w|\\.)*@\\w*")) {
+			methodInvocation = textOf(node);
+			if(NormalizedText.isUnflattened(methodInvocation)) {
 				methodInvocation = processMethodInvocation(node);
 			}
-			else {
-				methodInvocation = node.toString();
-			}
 		//}
 		boolean builderPatternChain = false;
 		for(String key : methodInvocationMap.keySet()) {
@@ -191,14 +202,14 @@ public class Visitor extends ASTVisitor {
 	
 	public boolean visit(SuperMethodInvocation node) {
 		invokedMethodNames.add(node.getName().getIdentifier());
-		methodInvocationMap.put(node.toString(), new OperationInvocation(cu, filePath, node));
+		methodInvocationMap.put(textOf(node), new OperationInvocation(cu, filePath, node));
 		return super.visit(node);
 	}
 
 	public boolean visit(QualifiedName node) {
 		Name qualifier = node.getQualifier();
 		if(Character.isUpperCase(qualifier.getFullyQualifiedName().charAt(0))) {
-			types.add(qualifier.getFullyQualifiedName());
+			types.add(SymbolTable.intern(qualifier.getFullyQualifiedName()));
 		}
 		return super.visit(node);
 	}
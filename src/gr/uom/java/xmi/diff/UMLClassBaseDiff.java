@@ -114,6 +114,10 @@ public abstract class UMLClassBaseDiff {
 		return originalClass;
 	}
 
+	public UMLClass getNextClass() {
+		return nextClass;
+	}
+
 	public List<UMLOperationBodyMapper> getOperationBodyMapperList() {
 		return operationBodyMapperList;
 	}
@@ -5,6 +5,7 @@ import gr.uom.java.xmi.UMLAttribute;
 import gr.uom.java.xmi.UMLClass;
 import gr.uom.java.xmi.UMLClassMatcher;
 import gr.uom.java.xmi.UMLGeneralization;
+import gr.uom.java.xmi.UMLModel;
 import gr.uom.java.xmi.UMLModelASTReader;
 import gr.uom.java.xmi.UMLOperation;
 import gr.uom.java.xmi.UMLParameter;
@@ -25,7 +26,9 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.refactoringminer.api.AnalysisPhase;
 import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.util.Deadline;
 
 public class UMLModelDiff {
    private List<UMLClass> addedClasses;
@@ -44,6 +47,8 @@ public class UMLModelDiff {
    private List<UMLClassRenameDiff> classRenameDiffList;
    private List<Refactoring> refactorings;
    private Set<String> deletedFolderPaths;
+   private UMLModel nextProjectModel;
+   private Map<String, UMLClass> nextProjectClassMap;
    
    public UMLModelDiff() {
       this.addedClasses = new ArrayList<UMLClass>();
@@ -62,6 +67,56 @@ public class UMLModelDiff {
       this.deletedFolderPaths = new LinkedHashSet<String>();
    }
 
+   //the whole project after the change, used to resolve classes that are not part of this diff because they did not change
+   public void setNextProjectModel(UMLModel nextProjectModel) {
+	   this.nextProjectModel = nextProjectModel;
+	   this.nextProjectClassMap = null;
+   }
+
+   //resolves a class name as written in the declaration of the referencing class, which may be null if the name is qualified
+   private UMLClass getUnchangedClass(String className, UMLClass referencingClass) {
+	   if(nextProjectModel == null) {
+		   return null;
+	   }
+	   if(nextProjectClassMap == null) {
+		   nextProjectClassMap = new LinkedHashMap<String, UMLClass>();
+		   for(UMLClass umlClass : nextProjectModel.getClassList()) {
+			   nextProjectClassMap.put(umlClass.getName(), umlClass);
+		   }
+	   }
+	   UMLClass umlClass = nextProjectClassMap.get(className);
+	   if(umlClass != null || referencingClass == null) {
+		   return umlClass;
+	   }
+	   String classType = UMLType.extractTypeObject(className).getClassType();
+	   String outermostType = classType.contains(".") ? classType.substring(0, classType.indexOf(".")) : classType;
+	   String nestedTypes = classType.substring(outermostType.length());
+	   //member classes of the referencing class and of its enclosing classes
+	   umlClass = nextProjectClassMap.get(referencingClass.getName() + "." + classType);
+	   String scope = referencingClass.getPackageName();
+	   while(umlClass == null && nextProjectClassMap.containsKey(scope)) {
+		   umlClass = nextProjectClassMap.get(scope + "." + classType);
+		   scope = nextProjectClassMap.get(scope).getPackageName();
+	   }
+	   //single type imports
+	   for(String importedType : referencingClass.getImportedTypes()) {
+		   if(umlClass == null && importedType.endsWith("." + outermostType)) {
+			   umlClass = nextProjectClassMap.get(importedType + nestedTypes);
+		   }
+	   }
+	   //classes of the same package
+	   if(umlClass == null) {
+		   umlClass = nextProjectClassMap.get(scope.isEmpty() ? classType : scope + "." + classType);
+	   }
+	   //on demand imports
+	   for(String importedType : referencingClass.getImportedTypes()) {
+		   if(umlClass == null) {
+			   umlClass = nextProjectClassMap.get(importedType + "." + classType);
+		   }
+	   }
+	   return umlClass;
+   }
+
    public void reportAddedClass(UMLClass umlClass) {
 	   if(!addedClasses.contains(umlClass))
 		   this.addedClasses.add(umlClass);
@@ -121,10 +176,10 @@ public class UMLModelDiff {
    }
 
    private boolean isSubclassOf(String subclass, String finalSuperclass) {
-	   return isSubclassOf(subclass, finalSuperclass, new LinkedHashSet<String>());
+	   return isSubclassOf(subclass, finalSuperclass, new LinkedHashSet<String>(), null);
    }
 
-   private boolean isSubclassOf(String subclass, String finalSuperclass, Set<String> visitedClasses) {
+   private boolean isSubclassOf(String subclass, String finalSuperclass, Set<String> visitedClasses, UMLClass referencingClass) {
 	   if(visitedClasses.contains(subclass)) {
 		   return false;
 	   }
@@ -138,21 +193,21 @@ public class UMLModelDiff {
 	   if(subclassDiff != null) {
 		   UMLType superclass = subclassDiff.getSuperclass();
 		   if(superclass != null) {
-			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses);
+			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses, subclassDiff.getNextClass());
 		   }
 		   else if(subclassDiff.getOldSuperclass() != null && subclassDiff.getNewSuperclass() != null &&
 				   !subclassDiff.getOldSuperclass().equals(subclassDiff.getNewSuperclass()) && looksLikeAddedClass(subclassDiff.getNewSuperclass()) != null) {
 			   UMLClass addedClass = looksLikeAddedClass(subclassDiff.getNewSuperclass());
 			   if(addedClass.getSuperclass() != null) {
-				   return checkInheritanceRelationship(addedClass.getSuperclass(), finalSuperclass, visitedClasses);
+				   return checkInheritanceRelationship(addedClass.getSuperclass(), finalSuperclass, visitedClasses, addedClass);
 			   }
 		   }
 		   else if(subclassDiff.getOldSuperclass() == null && subclassDiff.getNewSuperclass() != null && looksLikeAddedClass(subclassDiff.getNewSuperclass()) != null) {
 			   UMLClass addedClass = looksLikeAddedClass(subclassDiff.getNewSuperclass());
-			   return checkInheritanceRelationship(UMLType.extractTypeObject(addedClass.getName()), finalSuperclass, visitedClasses);
+			   return checkInheritanceRelationship(UMLType.extractTypeObject(addedClass.getName()), finalSuperclass, visitedClasses, null);
 		   }
 		   for(UMLType implementedInterface : subclassDiff.getAddedImplementedInterfaces()) {
-			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses)) {
+			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses, subclassDiff.getNextClass())) {
 				   return true;
 			   }
 		   }
@@ -164,10 +219,10 @@ public class UMLModelDiff {
 	   if(addedClass != null) {
 		   UMLType superclass = addedClass.getSuperclass();
 		   if(superclass != null) {
-			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses);
+			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses, addedClass);
 		   }
 		   for(UMLType implementedInterface : addedClass.getImplementedInterfaces()) {
-			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses)) {
+			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses, addedClass)) {
 				   return true;
 			   }
 		   }
@@ -179,22 +234,36 @@ public class UMLModelDiff {
 	   if(removedClass != null) {
 		   UMLType superclass = removedClass.getSuperclass();
 		   if(superclass != null) {
-			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses);
+			   return checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses, removedClass);
 		   }
 		   for(UMLType implementedInterface : removedClass.getImplementedInterfaces()) {
-			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses)) {
+			   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses, removedClass)) {
 				   return true;
 			   }
 		   }
 	   }
+	   if(subclassDiff == null && addedClass == null && removedClass == null) {
+		   UMLClass unchangedClass = getUnchangedClass(subclass, referencingClass);
+		   if(unchangedClass != null) {
+			   UMLType superclass = unchangedClass.getSuperclass();
+			   if(superclass != null && checkInheritanceRelationship(superclass, finalSuperclass, visitedClasses, unchangedClass)) {
+				   return true;
+			   }
+			   for(UMLType implementedInterface : unchangedClass.getImplementedInterfaces()) {
+				   if(checkInheritanceRelationship(implementedInterface, finalSuperclass, visitedClasses, unchangedClass)) {
+					   return true;
+				   }
+			   }
+		   }
+	   }
 	   return false;
    }
 
-   private boolean checkInheritanceRelationship(UMLType superclass, String finalSuperclass, Set<String> visitedClasses) {
+   private boolean checkInheritanceRelationship(UMLType superclass, String finalSuperclass, Set<String> visitedClasses, UMLClass referencingClass) {
 	   if(looksLikeSameType(superclass.getClassType(), finalSuperclass))
 		   return true;
 	   else
-		   return isSubclassOf(superclass.getClassType(), finalSuperclass, visitedClasses);
+		   return isSubclassOf(superclass.getClassType(), finalSuperclass, visitedClasses, referencingClass);
    }
 
    private UMLClass looksLikeAddedClass(UMLType type) {
@@ -295,6 +364,10 @@ public class UMLModelDiff {
    }
 
    public void checkForMovedClasses(Map<String, String> renamedFileHints, String projectRoot, UMLClassMatcher matcher) {
+	   checkForMovedClasses(renamedFileHints, projectRoot, null, matcher);
+   }
+
+   public void checkForMovedClasses(Map<String, String> renamedFileHints, String projectRoot, Set<String> repositoryDirectories, UMLClassMatcher matcher) {
 	   for(Iterator<UMLClass> removedClassIterator = removedClasses.iterator(); removedClassIterator.hasNext();) {
 		   UMLClass removedClass = removedClassIterator.next();
 		   TreeSet<UMLClassMoveDiff> diffSet = new TreeSet<UMLClassMoveDiff>(new ClassMoveComparator());
@@ -304,11 +377,10 @@ public class UMLModelDiff {
 			   String renamedFile =  renamedFileHints.get(removedClassSourceFile);
 			   String removedClassSourceFolder = "";
 			   if(removedClassSourceFile.contains("/")) {
-				   removedClassSourceFolder = removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/")).replaceAll("/", UMLModelASTReader.systemFileSeparator);
+				   removedClassSourceFolder = removedClassSourceFile.substring(0, removedClassSourceFile.lastIndexOf("/"));
 			   }
-			   String removedFileFolderPathAsString = projectRoot + File.separator + removedClassSourceFolder;
-			   File removedFileFolderPath = new File(removedFileFolderPathAsString);
-			   if(!removedFileFolderPath.exists()) {
+			   String removedFileFolderPathAsString = projectRoot + File.separator + removedClassSourceFolder.replaceAll("/", UMLModelASTReader.systemFileSeparator);
+			   if(!folderExists(removedFileFolderPathAsString, removedClassSourceFolder, repositoryDirectories)) {
 				   deletedFolderPaths.add(removedFileFolderPathAsString);
 			   }
 			   if(matcher.match(removedClass, addedClass, renamedFile)) {
@@ -341,6 +413,14 @@ public class UMLModelDiff {
 	   this.classMoveDiffList.removeAll(innerClassMoveDiffList);
    }
 
+   private boolean folderExists(String folderPath, String relativeFolderPath, Set<String> repositoryDirectories) {
+	   //when the model was read from the git object database the working tree does not reflect the analyzed commit
+	   if(repositoryDirectories != null) {
+		   return relativeFolderPath.isEmpty() || repositoryDirectories.contains(relativeFolderPath);
+	   }
+	   return new File(folderPath).exists();
+   }
+
    private boolean conflictingMoveOfTopLevelClass(UMLClass removedClass, UMLClass addedClass) {
 	   if(!removedClass.isTopLevel() && !addedClass.isTopLevel()) {
 		   //check if classMoveDiffList contains already a move for the outer class to a different target
@@ -573,6 +653,10 @@ public class UMLModelDiff {
 		   if(superclassOfTargetClassDiff != null) {
 			   return sourceClassImportsTargetClassAfterRefactoring(sourceClassName, superclassOfTargetClassDiff.getNextClassName());
 		   }
+		   UMLClass unchangedSuperclassOfTargetClass = getUnchangedClass(targetClassDiff.getSuperclass().getClassType(), targetClassDiff.getNextClass());
+		   if(unchangedSuperclassOfTargetClass != null) {
+			   return sourceClassImportsTargetClassAfterRefactoring(sourceClassName, unchangedSuperclassOfTargetClass.getName());
+		   }
 	   }
 	   return false;
    }
@@ -890,6 +974,7 @@ public class UMLModelDiff {
       refactorings.addAll(identifyExtractSuperclassRefactorings());
       
       for(UMLClassDiff classDiff : commonClassDiffList) {
+         Deadline.check(AnalysisPhase.DIFFING);
          refactorings.addAll(classDiff.getRefactorings());
       }
       checkForOperationMovesBetweenCommonClasses();
@@ -907,6 +992,7 @@ public class UMLModelDiff {
    private void checkForExtractedAndMovedOperations(List<UMLOperation> addedOperations) {
       for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
     	  UMLOperation addedOperation = addedOperationIterator.next();
+    	  Deadline.check(AnalysisPhase.DIFFING);
     	  for(UMLOperationBodyMapper mapper : getAllOperationBodyMappers()) {
     		  if(mapper.nonMappedElementsT1() > 0) {
                Set<OperationInvocation> operationInvocations = mapper.getOperation2().getAllOperationInvocations();
@@ -1065,6 +1151,7 @@ public class UMLModelDiff {
 	   if(addedOperations.size() <= removedOperations.size()) {
 	      for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
 	         UMLOperation addedOperation = addedOperationIterator.next();
+	         Deadline.check(AnalysisPhase.DIFFING);
 	         TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap = new TreeMap<Integer, List<UMLOperationBodyMapper>>();
 	         for(Iterator<UMLOperation> removedOperationIterator = removedOperations.iterator(); removedOperationIterator.hasNext();) {
 	            UMLOperation removedOperation = removedOperationIterator.next();
@@ -1121,6 +1208,7 @@ public class UMLModelDiff {
       else {
     	  for(Iterator<UMLOperation> removedOperationIterator = removedOperations.iterator(); removedOperationIterator.hasNext();) {
 	         UMLOperation removedOperation = removedOperationIterator.next();
+	         Deadline.check(AnalysisPhase.DIFFING);
 	         TreeMap<Integer, List<UMLOperationBodyMapper>> operationBodyMapperMap = new TreeMap<Integer, List<UMLOperationBodyMapper>>();
 	         for(Iterator<UMLOperation> addedOperationIterator = addedOperations.iterator(); addedOperationIterator.hasNext();) {
 	            UMLOperation addedOperation = addedOperationIterator.next();
@@ -0,0 +1,253 @@
+package org.refactoringminer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.lib.Repository;
+import org.refactoringminer.api.GitService;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
+import org.refactoringminer.util.GitServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mines several repositories in a single JVM. The commits of all repositories are analyzed on one shared pool
+ * of worker threads, while at most {@code maximumConcurrentRepositories} repositories are mined at the same time.
+ * Each repository keeps at most twice its share of the threads in flight on the shared pool, so that no repository
+ * can fill the queue of the pool and starve the others.
+ *
+ * The repositories are listed in a manifest file, one per line, with the same arguments as the single
+ * repository commands of {@link RefactoringMiner}:
+ * <pre>
+ * -a &lt;git-repo-folder&gt; [&lt;branch&gt;]
+ * -bc &lt;git-repo-folder&gt; &lt;start-commit-sha1&gt; [&lt;end-commit-sha1&gt;]
+ * -bt &lt;git-repo-folder&gt; &lt;start-tag&gt; [&lt;end-tag&gt;]
+ * </pre>
+ * Empty lines and lines starting with # are ignored. The refactorings of each repository are written to their own
+ * file in the output folder, in the format of {@link ResultWriter}, and the throughput of each repository and of the
+ * whole batch to summary.csv.
+ */
+public class BatchRefactoringMiner {
+
+	Logger logger = LoggerFactory.getLogger(BatchRefactoringMiner.class);
+
+	private final int numberOfThreads;
+	private final int maximumConcurrentRepositories;
+	private ResultWriter.Format outputFormat = ResultWriter.Format.CSV;
+	private boolean compressOutput = false;
+
+	public BatchRefactoringMiner(int numberOfThreads, int maximumConcurrentRepositories) {
+		if (numberOfThreads < 1 || maximumConcurrentRepositories < 1) {
+			throw new IllegalArgumentException("The number of threads and of concurrent repositories must be positive");
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.maximumConcurrentRepositories = maximumConcurrentRepositories;
+	}
+
+	void setOutputFormat(ResultWriter.Format outputFormat, boolean compressOutput) {
+		this.outputFormat = outputFormat;
+		this.compressOutput = compressOutput;
+	}
+
+	public static List<Entry> readManifest(File manifest) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] args = line.split("\\s+");
+			String option = args[0].toLowerCase();
+			if (!(option.equals("-a") || option.equals("-bc") || option.equals("-bt")) || args.length < 2 || args.length > 4
+					|| (option.equals("-a") && args.length > 3) || (!option.equals("-a") && args.length < 3)) {
+				throw new IllegalArgumentException("Invalid manifest line: " + line);
+			}
+			entries.add(new Entry(option, args[1], args.length > 2 ? args[2] : null, args.length > 3 ? args[3] : null));
+		}
+		return entries;
+	}
+
+	/**
+	 * Mine the given repositories, writing their refactorings and the summary to the output folder.
+	 *
+	 * @return The summary of each repository, in the order of the entries.
+	 */
+	public List<Summary> mine(List<Entry> entries, File outputFolder) throws Exception {
+		outputFolder.mkdirs();
+		final ExecutorService workers = Executors.newFixedThreadPool(numberOfThreads);
+		ExecutorService repositories = Executors.newFixedThreadPool(maximumConcurrentRepositories);
+		long startTime = System.currentTimeMillis();
+		List<Summary> summaries = new ArrayList<Summary>();
+		try {
+			List<Future<Summary>> futures = new ArrayList<Future<Summary>>();
+			Set<String> fileNames = new HashSet<String>();
+			for (final Entry entry : entries) {
+				String name = new File(entry.folder).getName();
+				String fileName = ResultWriter.fileName(name, outputFormat, compressOutput);
+				for (int i = 2; !fileNames.add(fileName); i++) {
+					fileName = ResultWriter.fileName(name + "_" + i, outputFormat, compressOutput);
+				}
+				final File resultFile = new File(outputFolder, fileName);
+				futures.add(repositories.submit(new Callable<Summary>() {
+					@Override
+					public Summary call() {
+						return mine(entry, resultFile, workers);
+					}
+				}));
+			}
+			for (Future<Summary> future : futures) {
+				summaries.add(future.get());
+			}
+		} finally {
+			repositories.shutdownNow();
+			workers.shutdownNow();
+		}
+		writeSummary(summaries, System.currentTimeMillis() - startTime, new File(outputFolder, "summary.csv"));
+		return summaries;
+	}
+
+	private Summary mine(Entry entry, File resultFile, ExecutorService workers) {
+		final Summary summary = new Summary(entry.folder);
+		long startTime = System.currentTimeMillis();
+		GitService gitService = new GitServiceImpl();
+		try (Repository repo = gitService.openRepository(entry.folder);
+				final ResultWriter writer = new ResultWriter(resultFile, outputFormat, compressOutput, RefactoringMiner.FLUSH_INTERVAL)) {
+			GitHistoryRefactoringMinerImpl detector = new GitHistoryRefactoringMinerImpl();
+			// the window of commits in flight of each repository is twice its share of the pool
+			detector.setNumberOfThreads(Math.max(1, numberOfThreads / maximumConcurrentRepositories));
+			detector.setExecutorService(workers);
+			RefactoringHandler handler = new RefactoringHandler() {
+				@Override
+				public void handle(String commitId, List<Refactoring> refactorings) {
+					writer.write(commitId, refactorings);
+				}
+
+				@Override
+				public void handleException(String commitId, Exception e) {
+					logger.warn(String.format("Error processing commit %s of %s", commitId, summary.repository), e);
+				}
+
+				@Override
+				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+					summary.refactoringsCount = refactoringsCount;
+					summary.commitsCount = commitsCount;
+					summary.errorCommitsCount = errorCommitsCount;
+				}
+			};
+			if (entry.option.equals("-a")) {
+				detector.detectAll(repo, entry.start, handler);
+			} else if (entry.option.equals("-bc")) {
+				detector.detectBetweenCommits(repo, entry.start, entry.end, handler);
+			} else {
+				detector.detectBetweenTags(repo, entry.start, entry.end, handler);
+			}
+		} catch (Exception e) {
+			logger.warn(String.format("Could not mine %s", entry.folder), e);
+			summary.failed = true;
+		}
+		summary.elapsedTime = System.currentTimeMillis() - startTime;
+		logger.info(summary.toString());
+		return summary;
+	}
+
+	private void writeSummary(List<Summary> summaries, long elapsedTime, File summaryFile) throws IOException {
+		Summary total = new Summary("TOTAL");
+		total.elapsedTime = elapsedTime;
+		try (BufferedWriter writer = Files.newBufferedWriter(summaryFile.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("Repository;Status;Commits;Errors;Refactorings;ElapsedMillis;CommitsPerSecond");
+			writer.newLine();
+			for (Summary summary : summaries) {
+				writer.write(summary.toCsv());
+				writer.newLine();
+				total.commitsCount += summary.commitsCount;
+				total.errorCommitsCount += summary.errorCommitsCount;
+				total.refactoringsCount += summary.refactoringsCount;
+				total.failed |= summary.failed;
+			}
+			// the total throughput is measured on the wall clock, as repositories are mined concurrently
+			writer.write(total.toCsv());
+			writer.newLine();
+		}
+		logger.info(total.toString());
+	}
+
+	public static class Entry {
+		private final String option;
+		private final String folder;
+		private final String start;
+		private final String end;
+
+		Entry(String option, String folder, String start, String end) {
+			this.option = option;
+			this.folder = folder;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	public static class Summary {
+		private final String repository;
+		private boolean failed;
+		private int commitsCount;
+		private int errorCommitsCount;
+		private int refactoringsCount;
+		private long elapsedTime;
+
+		Summary(String repository) {
+			this.repository = repository;
+		}
+
+		public String getRepository() {
+			return repository;
+		}
+
+		public boolean isFailed() {
+			return failed;
+		}
+
+		public int getCommitsCount() {
+			return commitsCount;
+		}
+
+		public int getErrorCommitsCount() {
+			return errorCommitsCount;
+		}
+
+		public int getRefactoringsCount() {
+			return refactoringsCount;
+		}
+
+		public long getElapsedTime() {
+			return elapsedTime;
+		}
+
+		public double getCommitsPerSecond() {
+			return elapsedTime > 0 ? commitsCount * 1000.0 / elapsedTime : 0;
+		}
+
+		private String toCsv() {
+			return String.format("%s;%s;%d;%d;%d;%d;%.2f", repository, failed ? "FAILED" : "OK", commitsCount,
+					errorCommitsCount, refactoringsCount, elapsedTime, getCommitsPerSecond());
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Mined %s [Commits: %d, Errors: %d, Refactorings: %d, Time: %d ms, Commits/s: %.2f]%s",
+					repository, commitsCount, errorCommitsCount, refactoringsCount, elapsedTime, getCommitsPerSecond(),
+					failed ? " FAILED" : "");
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.refactoringminer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * Reads the refactorings written by {@link BinaryResultWriter}, one block at a time, so that only the dictionary,
+ * which the writer restarts when it gets large, and the current block are held in memory.
+ */
+public class BinaryResultReader implements Iterator<BinaryResultReader.Record>, Closeable {
+
+	private final DataInputStream in;
+	private final List<String> dictionary = new ArrayList<String>();
+	private final Inflater inflater = new Inflater();
+	private final byte[] commit = new byte[Constants.OBJECT_ID_LENGTH];
+	private DataInputStream block = null;
+	private int remainingRecords = 0;
+	private String commitId = null;
+	private boolean ended = false;
+
+	public BinaryResultReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+		if (this.in.readInt() != BinaryResultWriter.MAGIC) {
+			throw new IOException("Not a binary result file");
+		}
+		int version = this.in.readInt();
+		if (version != BinaryResultWriter.VERSION) {
+			throw new IOException("Unsupported version " + version + " of the binary result format");
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (remainingRecords == 0 && !ended) {
+				readBlock();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return remainingRecords > 0;
+	}
+
+	private void readBlock() throws IOException {
+		int uncompressedLength;
+		try {
+			uncompressedLength = in.readInt();
+		} catch (EOFException e) {
+			ended = true;
+			return;
+		}
+		byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+		byte[] uncompressed = new byte[uncompressedLength];
+		inflater.reset();
+		inflater.setInput(compressed);
+		try {
+			if (inflater.inflate(uncompressed) != uncompressedLength) {
+				throw new IOException("Truncated block");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+		block = new DataInputStream(new ByteArrayInputStream(uncompressed));
+		if ((block.readUnsignedByte() & BinaryResultWriter.NEW_DICTIONARY) != 0) {
+			dictionary.clear();
+		}
+		int newTokens = readVarInt(block);
+		for (int i = 0; i < newTokens; i++) {
+			byte[] bytes = new byte[readVarInt(block)];
+			block.readFully(bytes);
+			dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+		remainingRecords = readVarInt(block);
+		commitId = null;
+	}
+
+	@Override
+	public Record next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			int flags = block.readUnsignedByte();
+			if ((flags & BinaryResultWriter.SAME_COMMIT) == 0) {
+				block.readFully(commit);
+				commitId = ObjectId.fromRaw(commit).getName();
+			}
+			RefactoringType type = RefactoringType.valueOf(dictionary.get(readVarInt(block)));
+			String name = (flags & BinaryResultWriter.DISPLAY_NAME) != 0 ? type.getDisplayName() : dictionary.get(readVarInt(block));
+			StringBuilder description = new StringBuilder();
+			if ((flags & BinaryResultWriter.NAME_PREFIX) != 0) {
+				description.append(name).append('\t');
+			}
+			int tokens = readVarInt(block);
+			for (int i = 0; i < tokens; i++) {
+				if (i > 0) {
+					description.append(' ');
+				}
+				description.append(dictionary.get(readVarInt(block)));
+			}
+			remainingRecords--;
+			return new Record(commitId, type, name, description.toString());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+
+	static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	public static class Record {
+		private final String commitId;
+		private final RefactoringType refactoringType;
+		private final String name;
+		private final String description;
+
+		Record(String commitId, RefactoringType refactoringType, String name, String description) {
+			this.commitId = commitId;
+			this.refactoringType = refactoringType;
+			this.name = name;
+			this.description = description;
+		}
+
+		public String getCommitId() {
+			return commitId;
+		}
+
+		public RefactoringType getRefactoringType() {
+			return refactoringType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return The description of the refactoring, as returned by its {@code toString()}.
+		 */
+		public String getDescription() {
+			return description;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package org.refactoringminer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * Writes refactorings in a compact binary format, read back by {@link BinaryResultReader}.
+ *
+ * The file starts with a magic number and the version of the format, followed by blocks of records, each
+ * compressed on its own with deflate and preceded by its uncompressed and compressed lengths. The descriptions of
+ * the refactorings are split at spaces, and every distinct token (class, package and method signatures, keywords)
+ * is stored once in a dictionary shared by the following blocks: each block starts with the tokens it adds to the
+ * dictionary, and its records refer to tokens by their index. Once the dictionary holds
+ * {@value #MAXIMUM_DICTIONARY_SIZE} tokens at the end of a block, it is emptied and the next block is flagged to
+ * start a new one, so the writer and the reader hold at most that many tokens plus those of one block. A record
+ * stores the commit as its 20 raw bytes, unless it is the commit of the previous record of the block, and the
+ * refactoring type as the token of its name, so that reordering the types does not change the meaning of the files
+ * written before.
+ */
+public class BinaryResultWriter implements Closeable {
+
+	static final int MAGIC = 0x524d4231;
+	static final int VERSION = 1;
+
+	static final int SAME_COMMIT = 1;
+	static final int DISPLAY_NAME = 2;
+	static final int NAME_PREFIX = 4;
+
+	// flag of a block starting a new dictionary
+	static final int NEW_DICTIONARY = 1;
+
+	static final int MAXIMUM_DICTIONARY_SIZE = 1 << 16;
+	private static final int RECORDS_PER_BLOCK = 4096;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+	private final List<String> newTokens = new ArrayList<String>();
+	private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+	private final DataOutputStream records = new DataOutputStream(block);
+	private final Deflater deflater = new Deflater();
+	private final byte[] commit = new byte[Constants.OBJECT_ID_LENGTH];
+	private String previousCommitId = null;
+	private int recordCount = 0;
+	private boolean newDictionary = false;
+
+	public BinaryResultWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+	}
+
+	public void write(String commitId, Refactoring refactoring) throws IOException {
+		write(commitId, refactoring.getRefactoringType(), refactoring.getName(), refactoring.toString());
+	}
+
+	void write(String commitId, RefactoringType type, String name, String description) throws IOException {
+		int flags = 0;
+		if (commitId.equals(previousCommitId)) {
+			flags |= SAME_COMMIT;
+		}
+		if (name.equals(type.getDisplayName())) {
+			flags |= DISPLAY_NAME;
+		}
+		// the description of a refactoring usually repeats its name
+		if (description.startsWith(name + "\t")) {
+			flags |= NAME_PREFIX;
+			description = description.substring(name.length() + 1);
+		}
+		records.writeByte(flags);
+		if ((flags & SAME_COMMIT) == 0) {
+			ObjectId.fromString(commitId).copyRawTo(commit, 0);
+			records.write(commit);
+			previousCommitId = commitId;
+		}
+		writeVarInt(records, token(type.name()));
+		if ((flags & DISPLAY_NAME) == 0) {
+			writeVarInt(records, token(name));
+		}
+		String[] tokens = description.split(" ", -1);
+		writeVarInt(records, tokens.length);
+		for (String token : tokens) {
+			writeVarInt(records, token(token));
+		}
+		recordCount++;
+		if (recordCount == RECORDS_PER_BLOCK) {
+			writeBlock();
+		}
+	}
+
+	private int token(String token) {
+		Integer index = dictionary.get(token);
+		if (index == null) {
+			index = dictionary.size();
+			dictionary.put(token, index);
+			newTokens.add(token);
+		}
+		return index;
+	}
+
+	private void writeBlock() throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerOut = new DataOutputStream(header);
+		headerOut.writeByte(newDictionary ? NEW_DICTIONARY : 0);
+		writeVarInt(headerOut, newTokens.size());
+		for (String token : newTokens) {
+			byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(headerOut, bytes.length);
+			headerOut.write(bytes);
+		}
+		writeVarInt(headerOut, recordCount);
+		block.writeTo(headerOut);
+		byte[] uncompressed = header.toByteArray();
+
+		deflater.reset();
+		deflater.setInput(uncompressed);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 4 + 64);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(buffer);
+			compressed.write(buffer, 0, length);
+		}
+		out.writeInt(uncompressed.length);
+		out.writeInt(compressed.size());
+		compressed.writeTo(out);
+
+		newTokens.clear();
+		block.reset();
+		recordCount = 0;
+		// blocks are decoded on their own, except for the dictionary
+		previousCommitId = null;
+		newDictionary = dictionary.size() >= MAXIMUM_DICTIONARY_SIZE;
+		if (newDictionary) {
+			dictionary.clear();
+		}
+	}
+
+	/**
+	 * Write the pending records as a block, even if it is not full.
+	 */
+	public void flush() throws IOException {
+		if (recordCount > 0) {
+			writeBlock();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Flush the blocks written so far, keeping the pending records for a full block.
+	 */
+	void flushBlocks() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+}
@@ -0,0 +1,305 @@
+package org.refactoringminer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * File-backed index of the refactorings detected in a repository, built by {@link RefactoringIndexWriter}.
+ *
+ * The index file holds the offset of each record in the records file and the inverted lists from class names,
+ * method signatures, refactoring types and commit months (yyyy-MM, UTC) to record ids. The lists are loaded in
+ * memory when the index is opened, so queries only read the records they return.
+ */
+public class RefactoringIndex implements Closeable {
+
+	static final int MAGIC = 0x524d4931;
+	static final String INDEX_FILE = "index.bin";
+	static final String RECORDS_FILE = "records.bin";
+
+	private static final RefactoringType[] TYPES = RefactoringType.values();
+	private static final int[] NO_RECORDS = new int[0];
+
+	private final RandomAccessFile records;
+	private final long[] offsets;
+	private final Map<String, int[]> classes;
+	private final Map<String, int[]> methods;
+	private final Map<String, int[]> types;
+	private final SortedMap<String, int[]> months;
+	private final byte[] recordTypes;
+
+	private RefactoringIndex(File folder) throws IOException {
+		try (DataInputStream index = new DataInputStream(new BufferedInputStream(new FileInputStream(new File(folder, INDEX_FILE)), 65536))) {
+			if (index.readInt() != MAGIC) {
+				throw new IOException("Not a refactoring index: " + folder);
+			}
+			int recordCount = index.readInt();
+			offsets = new long[recordCount + 1];
+			for (int i = 0; i <= recordCount; i++) {
+				offsets[i] = index.readLong();
+			}
+			classes = readSection(index, new HashMap<String, int[]>());
+			methods = readSection(index, new HashMap<String, int[]>());
+			types = readSection(index, new HashMap<String, int[]>());
+			months = readSection(index, new TreeMap<String, int[]>());
+		}
+		recordTypes = new byte[offsets.length - 1];
+		for (Map.Entry<String, int[]> entry : types.entrySet()) {
+			byte ordinal = (byte) RefactoringType.valueOf(entry.getKey()).ordinal();
+			for (int id : entry.getValue()) {
+				recordTypes[id] = ordinal;
+			}
+		}
+		records = new RandomAccessFile(new File(folder, RECORDS_FILE), "r");
+	}
+
+	public static RefactoringIndex open(File folder) throws IOException {
+		return new RefactoringIndex(folder);
+	}
+
+	private static <M extends Map<String, int[]>> M readSection(DataInputStream index, M lists) throws IOException {
+		int terms = BinaryResultReader.readVarInt(index);
+		for (int t = 0; t < terms; t++) {
+			String term = readString(index);
+			int[] ids = new int[BinaryResultReader.readVarInt(index)];
+			int previous = 0;
+			for (int i = 0; i < ids.length; i++) {
+				previous += BinaryResultReader.readVarInt(index);
+				ids[i] = previous;
+			}
+			lists.put(term, ids);
+		}
+		return lists;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[BinaryResultReader.readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public int size() {
+		return recordTypes.length;
+	}
+
+	/**
+	 * @return The refactorings matching the query, in the order they were added to the index.
+	 */
+	public List<Record> find(Query query) throws IOException {
+		int[] ids = evaluate(query);
+		List<Record> result = new ArrayList<Record>(ids.length);
+		for (int id : ids) {
+			result.add(read(id));
+		}
+		return result;
+	}
+
+	public int count(Query query) {
+		return evaluate(query).length;
+	}
+
+	/**
+	 * @return The number of refactorings of each type matching the query, by commit month.
+	 */
+	public SortedMap<String, Map<RefactoringType, Integer>> countByMonth(Query query) {
+		int[] ids = evaluate(query);
+		SortedMap<String, Map<RefactoringType, Integer>> counts = new TreeMap<String, Map<RefactoringType, Integer>>();
+		for (Map.Entry<String, int[]> month : months.entrySet()) {
+			Map<RefactoringType, Integer> monthCounts = new EnumMap<RefactoringType, Integer>(RefactoringType.class);
+			for (int id : intersect(ids, month.getValue())) {
+				RefactoringType type = TYPES[recordTypes[id]];
+				Integer count = monthCounts.get(type);
+				monthCounts.put(type, count == null ? 1 : count + 1);
+			}
+			if (!monthCounts.isEmpty()) {
+				counts.put(month.getKey(), monthCounts);
+			}
+		}
+		return counts;
+	}
+
+	private int[] evaluate(Query query) {
+		int[] ids = null;
+		if (query.className != null) {
+			ids = intersect(ids, lookup(classes, query.className));
+		}
+		if (query.method != null) {
+			ids = intersect(ids, lookup(methods, query.method));
+		}
+		if (query.refactoringType != null) {
+			ids = intersect(ids, lookup(types, query.refactoringType.name()));
+		}
+		if (query.fromMonth != null || query.toMonth != null) {
+			SortedMap<String, int[]> range = months;
+			if (query.fromMonth != null) {
+				range = range.tailMap(query.fromMonth);
+			}
+			if (query.toMonth != null) {
+				// the months up to and including toMonth
+				range = range.headMap(query.toMonth + "\0");
+			}
+			int length = 0;
+			for (int[] monthIds : range.values()) {
+				length += monthIds.length;
+			}
+			int[] union = new int[length];
+			int i = 0;
+			for (int[] monthIds : range.values()) {
+				System.arraycopy(monthIds, 0, union, i, monthIds.length);
+				i += monthIds.length;
+			}
+			Arrays.sort(union);
+			ids = intersect(ids, union);
+		}
+		if (ids == null) {
+			ids = new int[size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = i;
+			}
+		}
+		return ids;
+	}
+
+	private static int[] lookup(Map<String, int[]> lists, String term) {
+		int[] ids = lists.get(term);
+		return ids != null ? ids : NO_RECORDS;
+	}
+
+	/**
+	 * @return The ids in both sorted lists, where a null list stands for all records.
+	 */
+	private static int[] intersect(int[] ids1, int[] ids2) {
+		if (ids1 == null) {
+			return ids2;
+		}
+		int[] result = new int[Math.min(ids1.length, ids2.length)];
+		int size = 0;
+		for (int i = 0, j = 0; i < ids1.length && j < ids2.length; ) {
+			if (ids1[i] < ids2[j]) {
+				i++;
+			} else if (ids1[i] > ids2[j]) {
+				j++;
+			} else {
+				result[size++] = ids1[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	private synchronized Record read(int id) throws IOException {
+		byte[] bytes = new byte[(int) (offsets[id + 1] - offsets[id])];
+		records.seek(offsets[id]);
+		records.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		byte[] commit = new byte[Constants.OBJECT_ID_LENGTH];
+		in.readFully(commit);
+		int commitTime = in.readInt();
+		RefactoringType type = TYPES[in.readUnsignedByte()];
+		String name = readString(in);
+		String description = readString(in);
+		return new Record(ObjectId.fromRaw(commit).getName(), commitTime, type, name, description);
+	}
+
+	@Override
+	public void close() throws IOException {
+		records.close();
+	}
+
+	/**
+	 * The criteria of a search of the index. The refactorings must match all the criteria that are set.
+	 */
+	public static class Query {
+		private String className;
+		private String method;
+		private RefactoringType refactoringType;
+		private String fromMonth;
+		private String toMonth;
+
+		/**
+		 * @param className The fully qualified name of a class involved in the refactoring.
+		 */
+		public void setClassName(String className) {
+			this.className = className;
+		}
+
+		/**
+		 * @param method A method involved in the refactoring, as its class name and normalized signature separated
+		 * by #, e.g. {@code org.animals.Dog#getAge()}.
+		 */
+		public void setMethod(String method) {
+			this.method = method;
+		}
+
+		public void setRefactoringType(RefactoringType refactoringType) {
+			this.refactoringType = refactoringType;
+		}
+
+		/**
+		 * @param fromMonth The first month (yyyy-MM) of the commits, or null.
+		 * @param toMonth The last month (yyyy-MM) of the commits, or null.
+		 */
+		public void setMonths(String fromMonth, String toMonth) {
+			this.fromMonth = fromMonth;
+			this.toMonth = toMonth;
+		}
+	}
+
+	public static class Record {
+		private final String commitId;
+		private final int commitTime;
+		private final RefactoringType refactoringType;
+		private final String name;
+		private final String description;
+
+		Record(String commitId, int commitTime, RefactoringType refactoringType, String name, String description) {
+			this.commitId = commitId;
+			this.commitTime = commitTime;
+			this.refactoringType = refactoringType;
+			this.name = name;
+			this.description = description;
+		}
+
+		public String getCommitId() {
+			return commitId;
+		}
+
+		/**
+		 * @return The time of the commit in seconds since the epoch.
+		 */
+		public int getCommitTime() {
+			return commitTime;
+		}
+
+		public RefactoringType getRefactoringType() {
+			return refactoringType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package org.refactoringminer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.util.AstUtils;
+
+/**
+ * Builds a {@link RefactoringIndex} while refactorings are detected. The refactorings are appended to the records
+ * file as they are added, while the inverted lists from class names, method signatures, refactoring types and
+ * commit months to the records are kept in memory and written to the index file on {@link #close()}. Both files
+ * are written under temporary names and replace those of an earlier index on {@link #close()}, so that the folder
+ * never holds an index file with the records of another index.
+ *
+ * The classes and methods of a refactoring are taken from its description, so that an index can also be built
+ * from archived results. Methods are indexed as the name of their class and their normalized signature separated
+ * by #, e.g. {@code org.animals.Dog#getAge()}.
+ */
+public class RefactoringIndexWriter implements Closeable {
+
+	private static final Map<RefactoringType, Entities> ENTITIES = new EnumMap<RefactoringType, Entities>(RefactoringType.class);
+
+	static {
+		// the role of each group of the description pattern: C a class, L a list of classes, a digit a method of the
+		// class in that group, - anything else
+		ENTITIES.put(RefactoringType.EXTRACT_OPERATION, new Entities(RefactoringType.EXTRACT_OPERATION.getRegex(), "33C"));
+		ENTITIES.put(RefactoringType.RENAME_CLASS, new Entities(RefactoringType.RENAME_CLASS.getRegex(), "CC"));
+		ENTITIES.put(RefactoringType.MOVE_ATTRIBUTE, new Entities(RefactoringType.MOVE_ATTRIBUTE.getRegex(), "-CC"));
+		ENTITIES.put(RefactoringType.RENAME_METHOD, new Entities(RefactoringType.RENAME_METHOD.getRegex(), "33C"));
+		ENTITIES.put(RefactoringType.INLINE_OPERATION, new Entities(RefactoringType.INLINE_OPERATION.getRegex(), "33C"));
+		ENTITIES.put(RefactoringType.MOVE_OPERATION, new Entities(RefactoringType.MOVE_OPERATION.getRegex(), "2C4C"));
+		ENTITIES.put(RefactoringType.PULL_UP_OPERATION, new Entities(RefactoringType.PULL_UP_OPERATION.getRegex(), "2C4C"));
+		ENTITIES.put(RefactoringType.PUSH_DOWN_OPERATION, new Entities(RefactoringType.PUSH_DOWN_OPERATION.getRegex(), "2C4C"));
+		ENTITIES.put(RefactoringType.MOVE_CLASS, new Entities(RefactoringType.MOVE_CLASS.getRegex(), "CC"));
+		ENTITIES.put(RefactoringType.MOVE_RENAME_CLASS, new Entities(Pattern.compile("Move And Rename Class (.+) moved and renamed to (.+)"), "CC"));
+		ENTITIES.put(RefactoringType.PULL_UP_ATTRIBUTE, new Entities(RefactoringType.PULL_UP_ATTRIBUTE.getRegex(), "-CC"));
+		ENTITIES.put(RefactoringType.PUSH_DOWN_ATTRIBUTE, new Entities(RefactoringType.PUSH_DOWN_ATTRIBUTE.getRegex(), "-CC"));
+		ENTITIES.put(RefactoringType.EXTRACT_INTERFACE, new Entities(RefactoringType.EXTRACT_INTERFACE.getRegex(), "CL"));
+		ENTITIES.put(RefactoringType.EXTRACT_SUPERCLASS, new Entities(RefactoringType.EXTRACT_SUPERCLASS.getRegex(), "CL"));
+		ENTITIES.put(RefactoringType.EXTRACT_AND_MOVE_OPERATION, new Entities(Pattern.compile("Extract And Move Method (.+) extracted from (.+) in class (.+) & moved to class (.+)"), "43CC"));
+		ENTITIES.put(RefactoringType.CONVERT_ANONYMOUS_CLASS_TO_TYPE, new Entities(Pattern.compile("Convert Anonymous Class to Type (.+) was converted to (.+)"), "CC"));
+		ENTITIES.put(RefactoringType.CHANGE_METHOD_SIGNATURE, new Entities(RefactoringType.CHANGE_METHOD_SIGNATURE.getRegex(), "33C"));
+	}
+
+	private final File folder;
+	private final DataOutputStream records;
+	private long position = 0;
+	private long[] offsets = new long[1024];
+	private int recordCount = 0;
+	private final Map<String, Postings> classes = new HashMap<String, Postings>();
+	private final Map<String, Postings> methods = new HashMap<String, Postings>();
+	private final Map<String, Postings> types = new HashMap<String, Postings>();
+	private final Map<String, Postings> months = new HashMap<String, Postings>();
+	private final SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+	private final byte[] commit = new byte[Constants.OBJECT_ID_LENGTH];
+
+	public RefactoringIndexWriter(File folder) throws IOException {
+		this.folder = folder;
+		folder.mkdirs();
+		this.records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile(RefactoringIndex.RECORDS_FILE)), 65536));
+		this.monthFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+
+	public void add(RevCommit commit, List<Refactoring> refactorings) throws IOException {
+		for (Refactoring refactoring : refactorings) {
+			add(commit.getName(), commit.getCommitTime(), refactoring.getRefactoringType(), refactoring.getName(), refactoring.toString());
+		}
+	}
+
+	/**
+	 * @param commitTime The time of the commit in seconds since the epoch, as returned by {@link RevCommit#getCommitTime()}.
+	 */
+	public synchronized void add(String commitId, int commitTime, RefactoringType type, String name, String description) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + description.length());
+		DataOutputStream record = new DataOutputStream(bytes);
+		ObjectId.fromString(commitId).copyRawTo(commit, 0);
+		record.write(commit);
+		record.writeInt(commitTime);
+		record.writeByte(type.ordinal());
+		writeString(record, name);
+		writeString(record, description);
+		if (recordCount == offsets.length) {
+			long[] newOffsets = new long[2 * offsets.length];
+			System.arraycopy(offsets, 0, newOffsets, 0, recordCount);
+			offsets = newOffsets;
+		}
+		offsets[recordCount] = position;
+		bytes.writeTo(records);
+		position += bytes.size();
+
+		int id = recordCount++;
+		Set<String> classNames = new LinkedHashSet<String>();
+		Set<String> methodKeys = new LinkedHashSet<String>();
+		entities(type, description, classNames, methodKeys);
+		for (String className : classNames) {
+			postings(classes, className).add(id);
+		}
+		for (String methodKey : methodKeys) {
+			postings(methods, methodKey).add(id);
+		}
+		postings(types, type.name()).add(id);
+		postings(months, monthFormat.format(new Date(commitTime * 1000L))).add(id);
+	}
+
+	private static Postings postings(Map<String, Postings> lists, String term) {
+		Postings postings = lists.get(term);
+		if (postings == null) {
+			postings = new Postings();
+			lists.put(term, postings);
+		}
+		return postings;
+	}
+
+	/**
+	 * Collect the classes and methods named in the description of a refactoring.
+	 */
+	static void entities(RefactoringType type, String description, Set<String> classNames, Set<String> methodKeys) {
+		Entities entities = ENTITIES.get(type);
+		if (entities == null) {
+			return;
+		}
+		// the patterns separate the name of the refactoring from its details with a space, descriptions with a tab
+		Matcher m = entities.pattern.matcher(description.replaceFirst("\t", " "));
+		if (!m.matches()) {
+			return;
+		}
+		for (int g = 1; g <= entities.roles.length(); g++) {
+			char role = entities.roles.charAt(g - 1);
+			String group = m.group(g);
+			if (role == 'C') {
+				classNames.add(group);
+			} else if (role == 'L') {
+				for (String className : group.split(" *, *")) {
+					classNames.add(className);
+				}
+			} else if (Character.isDigit(role)) {
+				try {
+					methodKeys.add(m.group(role - '0') + "#" + AstUtils.normalizeMethodSignature(group));
+				} catch (IllegalArgumentException e) {
+					// not a method signature
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		records.close();
+		try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile(RefactoringIndex.INDEX_FILE)), 65536))) {
+			index.writeInt(RefactoringIndex.MAGIC);
+			index.writeInt(recordCount);
+			for (int i = 0; i < recordCount; i++) {
+				index.writeLong(offsets[i]);
+			}
+			index.writeLong(position);
+			writeSection(index, classes);
+			writeSection(index, methods);
+			writeSection(index, types);
+			writeSection(index, months);
+		}
+		// a reader finds either no index or the new index with its records
+		Files.deleteIfExists(new File(folder, RefactoringIndex.INDEX_FILE).toPath());
+		move(RefactoringIndex.RECORDS_FILE);
+		move(RefactoringIndex.INDEX_FILE);
+	}
+
+	private File temporaryFile(String fileName) {
+		return new File(folder, fileName + ".tmp");
+	}
+
+	private void move(String fileName) throws IOException {
+		File file = new File(folder, fileName);
+		try {
+			Files.move(temporaryFile(fileName).toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaryFile(fileName).toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writeSection(DataOutputStream index, Map<String, Postings> lists) throws IOException {
+		BinaryResultWriter.writeVarInt(index, lists.size());
+		for (Map.Entry<String, Postings> entry : new TreeMap<String, Postings>(lists).entrySet()) {
+			writeString(index, entry.getKey());
+			Postings postings = entry.getValue();
+			BinaryResultWriter.writeVarInt(index, postings.size);
+			int previous = 0;
+			for (int i = 0; i < postings.size; i++) {
+				// record ids only grow, so the gaps are small
+				BinaryResultWriter.writeVarInt(index, postings.ids[i] - previous);
+				previous = postings.ids[i];
+			}
+		}
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		BinaryResultWriter.writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static class Entities {
+		private final Pattern pattern;
+		private final String roles;
+
+		private Entities(Pattern pattern, String roles) {
+			this.pattern = pattern;
+			this.roles = roles;
+		}
+	}
+
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size = 0;
+
+		private void add(int id) {
+			if (size == ids.length) {
+				int[] newIds = new int[2 * ids.length];
+				System.arraycopy(ids, 0, newIds, 0, size);
+				ids = newIds;
+			}
+			ids[size++] = id;
+		}
+	}
+}
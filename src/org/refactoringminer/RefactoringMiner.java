@@ -1,23 +1,39 @@
 package org.refactoringminer;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.refactoringminer.api.GitHistoryRefactoringMiner;
 import org.refactoringminer.api.GitService;
 import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.api.RefactoringType;
 import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
 import org.refactoringminer.util.GitServiceImpl;
 
 public class RefactoringMiner {
 
+	// the longest time a line waits in memory before it is written to the result file
+	static final long FLUSH_INTERVAL = 1000;
+
+	private static ResultWriter.Format outputFormat = ResultWriter.Format.CSV;
+	private static boolean compressOutput = false;
+	private static File indexFolder = null;
+
 	public static void main(String[] args) throws Exception {
+		args = parseOutputOptions(args);
 		if (args.length < 1) {
 			throw argumentException();
 		}
@@ -37,6 +53,14 @@ public class RefactoringMiner {
 			detectBetweenTags(args);
 		} else if (option.equalsIgnoreCase("-c")) {
 			detectAtCommit(args);
+		} else if (option.equalsIgnoreCase("-batch")) {
+			detectInBatch(args);
+		} else if (option.equalsIgnoreCase("-sharded")) {
+			detectInShards(args);
+		} else if (option.equalsIgnoreCase("-convert")) {
+			convertToCsv(args);
+		} else if (option.equalsIgnoreCase("-query")) {
+			queryIndex(args);
 		} else {
 			throw argumentException();
 		}
@@ -54,39 +78,13 @@ public class RefactoringMiner {
 		GitService gitService = new GitServiceImpl();
 		try (Repository repo = gitService.openRepository(folder)) {
 			Path folderPath = Paths.get(folder);
-			String fileName = (branch == null) ? "all_refactorings.csv" : "all_refactorings_" + branch + ".csv";
+			String fileName = ResultWriter.fileName((branch == null) ? "all_refactorings" : "all_refactorings_" + branch, outputFormat, compressOutput);
 			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
-
-			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
-			detector.detectAll(repo, branch, new RefactoringHandler() {
-				@Override
-				public void handle(String commitId, List<Refactoring> refactorings) {
-					if (refactorings.isEmpty()) {
-						System.out.println("No refactorings found in commit " + commitId);
-					} else {
-						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
-
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
-						}
-					}
-				}
-
-				@Override
-				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-					System.out.println("Finish mining, result is saved to file: " + filePath);
-					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-							commitsCount, errorCommitsCount, refactoringsCount));
-				}
-
-				@Override
-				public void handleException(String commit, Exception e) {
-					System.err.println("Error processing commit " + commit);
-					e.printStackTrace(System.err);
-				}
-			});
+			try (ResultWriter writer = new ResultWriter(new File(filePath), outputFormat, compressOutput, FLUSH_INTERVAL);
+					RefactoringIndexWriter indexWriter = (indexFolder != null) ? new RefactoringIndexWriter(indexFolder) : null) {
+				GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
+				detector.detectAll(repo, branch, resultHandler(writer, indexWriter, filePath));
+			}
 		}
 	}
 
@@ -102,41 +100,16 @@ public class RefactoringMiner {
 			Path folderPath = Paths.get(folder);
 			String fileName = null;
 			if (endCommit == null) {
-				fileName = "refactorings_" + startCommit + "_begin" + ".csv";
+				fileName = "refactorings_" + startCommit + "_begin";
 			} else {
-				fileName = "refactorings_" + startCommit + "_" + endCommit + ".csv";
+				fileName = "refactorings_" + startCommit + "_" + endCommit;
+			}
+			String filePath = folderPath.toString() + "/" + ResultWriter.fileName(fileName, outputFormat, compressOutput);
+			try (ResultWriter writer = new ResultWriter(new File(filePath), outputFormat, compressOutput, FLUSH_INTERVAL);
+					RefactoringIndexWriter indexWriter = (indexFolder != null) ? new RefactoringIndexWriter(indexFolder) : null) {
+				GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
+				detector.detectBetweenCommits(repo, startCommit, endCommit, resultHandler(writer, indexWriter, filePath));
 			}
-			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
-
-			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
-			detector.detectBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
-				@Override
-				public void handle(String commitId, List<Refactoring> refactorings) {
-					if (refactorings.isEmpty()) {
-						System.out.println("No refactorings found in commit " + commitId);
-					} else {
-						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
-						}
-					}
-				}
-
-				@Override
-				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-					System.out.println("Finish mining, result is saved to file: " + filePath);
-					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-							commitsCount, errorCommitsCount, refactoringsCount));
-				}
-
-				@Override
-				public void handleException(String commit, Exception e) {
-					System.err.println("Error processing commit " + commit);
-					e.printStackTrace(System.err);
-				}
-			});
 		}
 	}
 
@@ -152,42 +125,55 @@ public class RefactoringMiner {
 			Path folderPath = Paths.get(folder);
 			String fileName = null;
 			if (endTag == null) {
-				fileName = "refactorings_" + startTag + "_begin" + ".csv";
+				fileName = "refactorings_" + startTag + "_begin";
 			} else {
-				fileName = "refactorings_" + startTag + "_" + endTag + ".csv";
+				fileName = "refactorings_" + startTag + "_" + endTag;
 			}
-			String filePath = folderPath.toString() + "/" + fileName;
-			Files.deleteIfExists(Paths.get(filePath));
-			saveToFile(filePath, getResultHeader());
+			String filePath = folderPath.toString() + "/" + ResultWriter.fileName(fileName, outputFormat, compressOutput);
+			try (ResultWriter writer = new ResultWriter(new File(filePath), outputFormat, compressOutput, FLUSH_INTERVAL);
+					RefactoringIndexWriter indexWriter = (indexFolder != null) ? new RefactoringIndexWriter(indexFolder) : null) {
+				GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
+				detector.detectBetweenTags(repo, startTag, endTag, resultHandler(writer, indexWriter, filePath));
+			}
+		}
+	}
 
-			GitHistoryRefactoringMiner detector = new GitHistoryRefactoringMinerImpl();
-			detector.detectBetweenTags(repo, startTag, endTag, new RefactoringHandler() {
-				@Override
-				public void handle(String commitId, List<Refactoring> refactorings) {
-					if (refactorings.isEmpty()) {
-						System.out.println("No refactorings found in commit " + commitId);
-					} else {
-						System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
-						for (Refactoring ref : refactorings) {
-							saveToFile(filePath, getResultRefactoringDescription(commitId, ref));
-						}
-					}
+	private static RefactoringHandler resultHandler(final ResultWriter writer, final RefactoringIndexWriter indexWriter, final String filePath) {
+		return new RefactoringHandler() {
+			@Override
+			public void handle(String commitId, List<Refactoring> refactorings) {
+				if (refactorings.isEmpty()) {
+					System.out.println("No refactorings found in commit " + commitId);
+				} else {
+					System.out.println(refactorings.size() + " refactorings found in commit " + commitId);
+					writer.write(commitId, refactorings);
 				}
+			}
 
-				@Override
-				public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-					System.out.println("Finish mining, result is saved to file: " + filePath);
-					System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-							commitsCount, errorCommitsCount, refactoringsCount));
+			@Override
+			public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+				if (indexWriter != null) {
+					try {
+						indexWriter.add(commitData, refactorings);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
 				}
+			}
 
-				@Override
-				public void handleException(String commit, Exception e) {
-					System.err.println("Error processing commit " + commit);
-					e.printStackTrace(System.err);
-				}
-			});
-		}
+			@Override
+			public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+				System.out.println("Finish mining, result is saved to file: " + filePath);
+				System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
+						commitsCount, errorCommitsCount, refactoringsCount));
+			}
+
+			@Override
+			public void handleException(String commit, Exception e) {
+				System.err.println("Error processing commit " + commit);
+				e.printStackTrace(System.err);
+			}
+		};
 	}
 
 	private static void detectAtCommit(String[] args) throws Exception {
@@ -221,6 +207,151 @@ public class RefactoringMiner {
 		}
 	}
 
+	private static void detectInBatch(String[] args) throws Exception {
+		if (args.length < 3 || args.length > 5) {
+			throw argumentException();
+		}
+		File manifest = new File(args[1]);
+		File outputFolder = new File(args[2]);
+		int numberOfThreads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int maximumConcurrentRepositories = (args.length > 4) ? Integer.parseInt(args[4]) : 4;
+		BatchRefactoringMiner batchMiner = new BatchRefactoringMiner(numberOfThreads, maximumConcurrentRepositories);
+		batchMiner.setOutputFormat(outputFormat, compressOutput);
+		List<BatchRefactoringMiner.Summary> summaries = batchMiner.mine(BatchRefactoringMiner.readManifest(manifest), outputFolder);
+		int commitsCount = 0;
+		int errorCommitsCount = 0;
+		int refactoringsCount = 0;
+		for (BatchRefactoringMiner.Summary summary : summaries) {
+			System.out.println(summary);
+			commitsCount += summary.getCommitsCount();
+			errorCommitsCount += summary.getErrorCommitsCount();
+			refactoringsCount += summary.getRefactoringsCount();
+		}
+		System.out.println("Finish mining, results are saved to folder: " + outputFolder);
+		System.out.println(String.format("Total count: [Repositories: %d, Commits: %d, Errors: %d, Refactorings: %d]",
+				summaries.size(), commitsCount, errorCommitsCount, refactoringsCount));
+	}
+
+	private static void detectInShards(String[] args) throws Exception {
+		if (args.length < 4 || args.length > 6) {
+			throw argumentException();
+		}
+		ShardedRefactoringMiner shardedMiner = new ShardedRefactoringMiner(Integer.parseInt(args[1]));
+		shardedMiner.setOutputFormat(outputFormat, compressOutput);
+		String command = args[2];
+		String folder = args[3];
+		Path folderPath = Paths.get(folder);
+		String fileName;
+		if (command.equalsIgnoreCase("-a") && args.length <= 5) {
+			String branch = (args.length == 5) ? args[4] : null;
+			fileName = ResultWriter.fileName((branch == null) ? "all_refactorings" : "all_refactorings_" + branch, outputFormat, compressOutput);
+			shardedMiner.detectAll(folder, branch, folderPath.resolve(fileName).toFile());
+		} else if (command.equalsIgnoreCase("-bc") && args.length >= 5) {
+			String startCommit = args[4];
+			String endCommit = (args.length == 6) ? args[5] : null;
+			fileName = ResultWriter.fileName("refactorings_" + startCommit + "_" + (endCommit == null ? "begin" : endCommit), outputFormat, compressOutput);
+			shardedMiner.detectBetweenCommits(folder, startCommit, endCommit, folderPath.resolve(fileName).toFile());
+		} else {
+			throw argumentException();
+		}
+		System.out.println("Finish mining, result is saved to file: " + folderPath.resolve(fileName));
+	}
+
+	/**
+	 * Remove the options selecting the format of the result file and the index from the arguments.
+	 */
+	private static String[] parseOutputOptions(String[] args) {
+		List<String> remaining = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equalsIgnoreCase("-index") && i + 1 < args.length) {
+				indexFolder = new File(args[++i]);
+			} else if (arg.equalsIgnoreCase("-json")) {
+				outputFormat = ResultWriter.Format.JSON;
+			} else if (arg.equalsIgnoreCase("-binary")) {
+				outputFormat = ResultWriter.Format.BINARY;
+			} else if (arg.equalsIgnoreCase("-gzip")) {
+				compressOutput = true;
+			} else {
+				remaining.add(arg);
+			}
+		}
+		if (outputFormat == ResultWriter.Format.BINARY && compressOutput) {
+			// fail before mining, since the -batch and -sharded commands open their writers at the end
+			throw new IllegalArgumentException("The -gzip option cannot be combined with -binary, whose blocks are already compressed");
+		}
+		return remaining.toArray(new String[remaining.size()]);
+	}
+
+	private static void convertToCsv(String[] args) throws Exception {
+		if (args.length != 3) {
+			throw argumentException();
+		}
+		int count = 0;
+		try (BinaryResultReader reader = new BinaryResultReader(new BufferedInputStream(new FileInputStream(args[1]), 65536));
+				BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+			writer.write(getResultHeader());
+			writer.newLine();
+			while (reader.hasNext()) {
+				BinaryResultReader.Record record = reader.next();
+				writer.write(getResultRefactoringDescription(record.getCommitId(), record.getName(), record.getDescription()));
+				writer.newLine();
+				count++;
+			}
+		}
+		System.out.println(String.format("Converted %d refactorings to %s", count, args[2]));
+	}
+
+	private static void queryIndex(String[] args) throws Exception {
+		if (args.length < 2) {
+			throw argumentException();
+		}
+		RefactoringIndex.Query query = new RefactoringIndex.Query();
+		String fromMonth = null;
+		String toMonth = null;
+		boolean byMonth = false;
+		for (int i = 2; i < args.length; i++) {
+			String option = args[i];
+			if (option.equalsIgnoreCase("-months")) {
+				byMonth = true;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				throw argumentException();
+			}
+			String value = args[++i];
+			if (option.equalsIgnoreCase("-class")) {
+				query.setClassName(value);
+			} else if (option.equalsIgnoreCase("-method")) {
+				query.setMethod(value);
+			} else if (option.equalsIgnoreCase("-type")) {
+				query.setRefactoringType(RefactoringType.fromName(value));
+			} else if (option.equalsIgnoreCase("-from")) {
+				fromMonth = value;
+			} else if (option.equalsIgnoreCase("-to")) {
+				toMonth = value;
+			} else {
+				throw argumentException();
+			}
+		}
+		query.setMonths(fromMonth, toMonth);
+		try (RefactoringIndex index = RefactoringIndex.open(new File(args[1]))) {
+			if (byMonth) {
+				System.out.println("Month;RefactoringType;Count");
+				for (Map.Entry<String, Map<RefactoringType, Integer>> month : index.countByMonth(query).entrySet()) {
+					for (Map.Entry<RefactoringType, Integer> count : month.getValue().entrySet()) {
+						System.out.println(month.getKey() + ";" + count.getKey().getDisplayName() + ";" + count.getValue());
+					}
+				}
+			} else {
+				System.out.println(getResultHeader());
+				for (RefactoringIndex.Record record : index.find(query)) {
+					System.out.println(getResultRefactoringDescription(record.getCommitId(), record.getName(), record.getDescription()));
+				}
+			}
+		}
+	}
+
 	private static void printTips() {
 		System.out.println("-h\t\t\t\t\t\t\t\tShow tips");
 		System.out.println(
@@ -231,33 +362,43 @@ public class RefactoringMiner {
 				"-bt <git-repo-folder> <start-tag> <end-tag>\t\t\tDetect refactorings Between <start-tag> and <end-tag> for project <git-repo-folder>");
 		System.out.println(
 				"-c <git-repo-folder> <commit-sha1>\t\t\t\tDetect refactorings at specified commit <commit-sha1> for project <git-repo-folder>");
+		System.out.println(
+				"-batch <manifest-file> <output-folder> [<threads> [<max-repos>]]\tDetect refactorings in each repository listed in <manifest-file>, one -a, -bc or -bt command per line, sharing <threads> worker threads (by default one per processor) among at most <max-repos> repositories (by default 4) at a time. Results are saved to <output-folder>");
+		System.out.println(
+				"-sharded <workers> -a|-bc <arguments>\t\t\t\tRun the -a or -bc command with its <arguments> on <workers> local worker processes, each mining a shard of the commits");
+		System.out.println(
+				"-json\t\t\t\t\t\t\t\tSave the result of the -a, -bc, -bt, -batch and -sharded commands as JSON Lines instead of CSV");
+		System.out.println(
+				"-binary\t\t\t\t\t\t\t\tSave the result of the -a, -bc, -bt, -batch and -sharded commands in a compact binary format");
+		System.out.println(
+				"-convert <binary-result-file> <csv-file>\t\t\tConvert a result file in binary format to CSV");
+		System.out.println(
+				"-index <index-folder>\t\t\t\t\t\tAlso index the result of the -a, -bc and -bt commands in <index-folder>");
+		System.out.println(
+				"-query <index-folder> [-class <class>] [-method <class#method(types)>] [-type <refactoring-type>] [-from <yyyy-MM>] [-to <yyyy-MM>] [-months]\tPrint the refactorings in <index-folder> matching all the given criteria, or their number by month and type with -months");
+		System.out.println(
+				"-gzip\t\t\t\t\t\t\t\tCompress the result of the -a, -bc, -bt, -batch and -sharded commands with gzip");
 	}
 
 	private static IllegalArgumentException argumentException() {
 		return new IllegalArgumentException("Type `RefactoringMiner -h` to show usage.");
 	}
 
-	private static String getResultRefactoringDescription(String commitId, Refactoring ref) {
+	static String getResultRefactoringDescription(String commitId, Refactoring ref) {
+		return getResultRefactoringDescription(commitId, ref.getName(), ref.toString());
+	}
+
+	static String getResultRefactoringDescription(String commitId, String name, String description) {
 		StringBuilder builder = new StringBuilder();
 		builder.append(commitId);
 		builder.append(";");
-		builder.append(ref.getName());
+		builder.append(name);
 		builder.append(";");
-		builder.append(ref);
+		builder.append(description);
 		return builder.toString();
 	}
 
-	private static void saveToFile(String fileName, String content) {
-		Path path = Paths.get(fileName);
-		byte[] contentBytes = (content + System.lineSeparator()).getBytes();
-		try {
-			Files.write(path, contentBytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	private static String getResultHeader() {
+	static String getResultHeader() {
 		return "CommitId;RefactoringType;RefactoringDetail";
 	}
 
@@ -0,0 +1,240 @@
+package org.refactoringminer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.refactoringminer.api.Refactoring;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the refactorings reported by the command line to a result file, as CSV or as JSON Lines and optionally
+ * compressed with gzip, or in the binary format of {@link BinaryResultWriter}. The file is kept open and written on a background thread, so the analysis only waits for
+ * the disk when the queue of pending lines is full. The output is flushed at least every
+ * {@code flushInterval} milliseconds, which bounds what is lost if the process dies. The binary format only flushes
+ * its complete blocks, since cutting a block at every flush would compress the records poorly.
+ */
+class ResultWriter implements Closeable {
+
+	enum Format {
+		CSV(".csv"), JSON(".jsonl"), BINARY(".rmb");
+
+		private final String extension;
+
+		private Format(String extension) {
+			this.extension = extension;
+		}
+	}
+
+	private static final int QUEUE_SIZE = 4096;
+	private static final Object END = new Object();
+
+	private final Format format;
+	private final Writer writer;
+	private final JsonGenerator generator;
+	private final BinaryResultWriter binaryWriter;
+	private final long flushInterval;
+	private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(QUEUE_SIZE);
+	private final Thread thread;
+	private volatile Throwable failure = null;
+
+	ResultWriter(File file, Format format, boolean gzip, long flushInterval) throws IOException {
+		this.format = format;
+		this.flushInterval = flushInterval;
+		if (format == Format.BINARY && gzip) {
+			throw new IllegalArgumentException("The blocks of the binary format are already compressed");
+		}
+		OutputStream out = new FileOutputStream(file);
+		if (gzip) {
+			// sync flush, so that every flush leaves a readable prefix of the compressed file
+			out = new GZIPOutputStream(out, 8192, true);
+		}
+		if (format == Format.BINARY) {
+			this.binaryWriter = new BinaryResultWriter(new BufferedOutputStream(out, 65536));
+			this.writer = null;
+			this.generator = null;
+		} else {
+			this.binaryWriter = null;
+			this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+			if (format == Format.JSON) {
+				this.generator = new JsonFactory().setRootValueSeparator(null).createGenerator(writer);
+				this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			} else {
+				this.generator = null;
+				writer.write(RefactoringMiner.getResultHeader());
+				writer.write(System.lineSeparator());
+			}
+		}
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "RefactoringMiner-writer");
+		this.thread.start();
+	}
+
+	/**
+	 * @return The name of the result file with the given base name, e.g. all_refactorings.jsonl.gz.
+	 */
+	static String fileName(String baseName, Format format, boolean gzip) {
+		return baseName + format.extension + (gzip ? ".gz" : "");
+	}
+
+	void write(String commitId, List<Refactoring> refactorings) {
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+		for (Refactoring ref : refactorings) {
+			put(new Line(commitId, ref));
+		}
+	}
+
+	private void put(Object element) {
+		try {
+			while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+				if (!thread.isAlive()) {
+					throw new IllegalStateException("The writer thread stopped", failure);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void drain() {
+		List<Object> elements = new ArrayList<Object>();
+		long lastFlush = System.currentTimeMillis();
+		boolean dirty = false;
+		try {
+			while (true) {
+				Object element = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (element != null) {
+					elements.add(element);
+					queue.drainTo(elements);
+				}
+				for (Object e : elements) {
+					if (e == END) {
+						flush();
+						return;
+					}
+					if (failure == null) {
+						writeLine((Line) e);
+						dirty = true;
+					}
+				}
+				elements.clear();
+				long now = System.currentTimeMillis();
+				if (dirty && now - lastFlush >= flushInterval && failure == null) {
+					flush();
+					lastFlush = now;
+					dirty = false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable e) {
+			failure = e;
+			// keep consuming, so that the analysis thread is not blocked on a full queue
+			drainAfterFailure();
+		}
+	}
+
+	private void drainAfterFailure() {
+		try {
+			while (queue.take() != END) {
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLine(Line line) throws IOException {
+		if (format == Format.BINARY) {
+			binaryWriter.write(line.commitId, line.refactoring);
+		} else if (format == Format.JSON) {
+			generator.writeStartObject();
+			generator.writeStringField("commitId", line.commitId);
+			generator.writeStringField("type", line.refactoring.getName());
+			generator.writeStringField("description", line.refactoring.toString());
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		} else {
+			writer.write(RefactoringMiner.getResultRefactoringDescription(line.commitId, line.refactoring));
+			writer.write(System.lineSeparator());
+		}
+	}
+
+	private void flush() throws IOException {
+		if (binaryWriter != null) {
+			// the last block is written when the file is closed
+			binaryWriter.flushBlocks();
+			return;
+		}
+		if (generator != null) {
+			generator.flush();
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write the pending lines and close the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			put(END);
+			thread.join();
+		} catch (IllegalStateException e) {
+			// the writer thread is gone, the file is closed all the same
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (binaryWriter != null) {
+			binaryWriter.close();
+		} else {
+			try {
+				if (generator != null) {
+					generator.close();
+				}
+			} finally {
+				writer.close();
+			}
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new IOException(failure);
+		}
+	}
+
+	private static class Line {
+		private final String commitId;
+		private final Refactoring refactoring;
+
+		private Line(String commitId, Refactoring refactoring) {
+			this.commitId = commitId;
+			this.refactoring = refactoring;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package org.refactoringminer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.GitService;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.rm1.GitHistoryRefactoringMinerImpl;
+import org.refactoringminer.rm1.StoredRefactoring;
+import org.refactoringminer.util.GitServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mines the history of a repository with several worker JVMs on the local machine, so that no single heap
+ * holds the analysis of the whole history.
+ *
+ * The coordinator splits the commits of the revision walk into consecutive shards and starts one worker process
+ * per shard. Workers read the files of each commit from the git object database, so they all share the same
+ * repository without a working tree of their own. Coordinator and workers communicate through files in a work
+ * folder: a worker reads the ids of its commits and appends to its output file a start marker for each commit,
+ * then its refactorings, followed by a completion marker, or a failure marker when the analysis of the commit
+ * failed. When a worker exits abnormally, the commits of its shard without a marker are mined again by a new
+ * worker, up to a maximum number of attempts. The commit the worker was mining when it exited is given a worker
+ * of its own, so that a commit crashing the JVM does not take the rest of its shard down with it on every attempt.
+ * The outputs are finally merged in the order of the revision walk, so the result does not depend on how the
+ * commits were sharded, and written in the format of {@link ResultWriter}. The work folder is deleted unless some
+ * commits failed.
+ */
+public class ShardedRefactoringMiner {
+
+	private static final String COMMIT_STARTED_PREFIX = ">";
+	private static final String COMMIT_DONE_PREFIX = "#";
+	private static final String COMMIT_FAILED_PREFIX = "!";
+
+	Logger logger = LoggerFactory.getLogger(ShardedRefactoringMiner.class);
+
+	private final int numberOfWorkers;
+	private int maximumAttempts = 3;
+	private List<String> workerJvmOptions = Collections.emptyList();
+	private ResultWriter.Format outputFormat = ResultWriter.Format.CSV;
+	private boolean compressOutput = false;
+
+	public ShardedRefactoringMiner(int numberOfWorkers) {
+		if (numberOfWorkers < 1) {
+			throw new IllegalArgumentException("The number of workers must be positive");
+		}
+		this.numberOfWorkers = numberOfWorkers;
+	}
+
+	/**
+	 * The number of times the commits of a shard are given to a worker before they are reported as failed.
+	 */
+	public void setMaximumAttempts(int maximumAttempts) {
+		if (maximumAttempts < 1) {
+			throw new IllegalArgumentException("The number of attempts must be positive");
+		}
+		this.maximumAttempts = maximumAttempts;
+	}
+
+	/**
+	 * Options passed to the worker JVMs, e.g. their maximum heap size.
+	 */
+	public void setWorkerJvmOptions(List<String> workerJvmOptions) {
+		this.workerJvmOptions = workerJvmOptions;
+	}
+
+	void setOutputFormat(ResultWriter.Format outputFormat, boolean compressOutput) {
+		this.outputFormat = outputFormat;
+		this.compressOutput = compressOutput;
+	}
+
+	public void detectAll(String folder, String branch, File outputFile) throws Exception {
+		GitService gitService = new GitServiceImpl();
+		try (Repository repo = gitService.openRepository(folder)) {
+			RevWalk walk = gitService.createAllRevsWalk(repo, branch);
+			try {
+				detect(folder, commitIds(walk), outputFile);
+			} finally {
+				walk.dispose();
+			}
+		}
+	}
+
+	public void detectBetweenCommits(String folder, String startCommitId, String endCommitId, File outputFile) throws Exception {
+		GitService gitService = new GitServiceImpl();
+		try (Repository repo = gitService.openRepository(folder)) {
+			RevWalk walk = gitService.createRevsWalkBetweenCommits(repo, startCommitId, endCommitId);
+			try {
+				detect(folder, commitIds(walk), outputFile);
+			} finally {
+				walk.dispose();
+			}
+		}
+	}
+
+	private List<String> commitIds(RevWalk walk) {
+		List<String> commitIds = new ArrayList<String>();
+		for (RevCommit commit : walk) {
+			commitIds.add(commit.getName());
+		}
+		return commitIds;
+	}
+
+	private void detect(String folder, List<String> commitIds, File outputFile) throws Exception {
+		File workFolder = Files.createTempDirectory("refactoringminer-shards").toFile();
+		Map<String, List<String>> results = new HashMap<String, List<String>>();
+		Set<String> failedCommits = new HashSet<String>();
+		List<List<String>> shards = new ArrayList<List<String>>();
+		int shardSize = (commitIds.size() + numberOfWorkers - 1) / numberOfWorkers;
+		for (int from = 0; from < commitIds.size(); from += shardSize) {
+			shards.add(commitIds.subList(from, Math.min(from + shardSize, commitIds.size())));
+		}
+		for (int attempt = 1; attempt <= maximumAttempts && !shards.isEmpty(); attempt++) {
+			List<Process> workers = new ArrayList<Process>();
+			List<File> outputs = new ArrayList<File>();
+			for (int i = 0; i < shards.size(); i++) {
+				String name = String.format("shard-%d-attempt-%d", i, attempt);
+				File commitsFile = new File(workFolder, name + ".commits");
+				File shardOutput = new File(workFolder, name + ".out");
+				Files.write(commitsFile.toPath(), shards.get(i), StandardCharsets.UTF_8);
+				workers.add(startWorker(folder, commitsFile, shardOutput, new File(workFolder, name + ".log")));
+				outputs.add(shardOutput);
+			}
+			List<List<String>> unfinishedShards = new ArrayList<List<String>>();
+			for (int i = 0; i < workers.size(); i++) {
+				int exitValue = workers.get(i).waitFor();
+				String interruptedCommit = readCompletedCommits(outputs.get(i), results, failedCommits);
+				List<String> unfinished = new ArrayList<String>();
+				for (String commitId : shards.get(i)) {
+					if (!results.containsKey(commitId) && !failedCommits.contains(commitId)) {
+						unfinished.add(commitId);
+					}
+				}
+				if (!unfinished.isEmpty()) {
+					logger.warn(String.format("Worker of shard %d exited with %d leaving %d commits unfinished, see %s", i, exitValue, unfinished.size(), workFolder));
+					if (interruptedCommit != null && unfinished.size() > 1 && unfinished.remove(interruptedCommit)) {
+						// the commit that crashed the worker is retried on its own
+						logger.warn(String.format("Isolating commit %s, which was being mined when the worker exited", interruptedCommit));
+						unfinishedShards.add(Collections.singletonList(interruptedCommit));
+					}
+					unfinishedShards.add(unfinished);
+				}
+			}
+			shards = unfinishedShards;
+		}
+		int failedCommitsCount = 0;
+		try (ResultWriter writer = new ResultWriter(outputFile, outputFormat, compressOutput, RefactoringMiner.FLUSH_INTERVAL)) {
+			for (String commitId : commitIds) {
+				List<String> lines = results.get(commitId);
+				if (lines == null) {
+					failedCommitsCount++;
+					continue;
+				}
+				List<Refactoring> refactorings = new ArrayList<Refactoring>(lines.size());
+				for (String line : lines) {
+					refactorings.add(parseRefactoring(line));
+				}
+				writer.write(commitId, refactorings);
+			}
+		}
+		logger.info(String.format("Merged %d shards of %s [Commits: %d, Failed: %d]", Math.min(numberOfWorkers, commitIds.size()), folder, commitIds.size(), failedCommitsCount));
+		if (failedCommitsCount == 0) {
+			FileUtils.deleteDirectory(workFolder);
+		} else {
+			logger.warn(String.format("Kept the outputs and logs of the workers in %s", workFolder));
+		}
+	}
+
+	private Process startWorker(String folder, File commitsFile, File outputFile, File logFile) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.addAll(workerJvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardedRefactoringMiner.class.getName());
+		command.add(folder);
+		command.add(commitsFile.getPath());
+		command.add(outputFile.getPath());
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(logFile);
+		return builder.start();
+	}
+
+	/**
+	 * Read the refactorings of the commits a worker completed and the commits it failed to mine, ignoring the
+	 * partial output of a commit interrupted by a crash.
+	 *
+	 * @return The commit the worker started mining and did not complete nor fail, if any.
+	 */
+	private String readCompletedCommits(File shardOutput, Map<String, List<String>> results, Set<String> failedCommits) throws IOException {
+		if (!shardOutput.exists()) {
+			return null;
+		}
+		String startedCommit = null;
+		Map<String, List<String>> pending = new LinkedHashMap<String, List<String>>();
+		for (String line : Files.readAllLines(shardOutput.toPath(), StandardCharsets.UTF_8)) {
+			if (line.startsWith(COMMIT_STARTED_PREFIX)) {
+				startedCommit = line.substring(COMMIT_STARTED_PREFIX.length());
+			} else if (line.startsWith(COMMIT_DONE_PREFIX)) {
+				String commitId = line.substring(COMMIT_DONE_PREFIX.length());
+				List<String> lines = pending.remove(commitId);
+				results.put(commitId, lines != null ? lines : Collections.<String>emptyList());
+				startedCommit = null;
+			} else if (line.startsWith(COMMIT_FAILED_PREFIX)) {
+				String commitId = line.substring(COMMIT_FAILED_PREFIX.length());
+				pending.remove(commitId);
+				failedCommits.add(commitId);
+				startedCommit = null;
+			} else {
+				String commitId = line.substring(0, line.indexOf(';'));
+				List<String> lines = pending.get(commitId);
+				if (lines == null) {
+					lines = new ArrayList<String>();
+					pending.put(commitId, lines);
+				}
+				lines.add(line);
+			}
+		}
+		return startedCommit;
+	}
+
+	/**
+	 * The line of a refactoring in the output of a worker: its commit, type, name and description.
+	 */
+	private static String formatRefactoring(String commitId, Refactoring refactoring) {
+		return commitId + ";" + refactoring.getRefactoringType().name() + ";" + refactoring.getName() + ";" + refactoring.toString();
+	}
+
+	private static Refactoring parseRefactoring(String line) {
+		int typeStart = line.indexOf(';') + 1;
+		int nameStart = line.indexOf(';', typeStart) + 1;
+		int descriptionStart = line.indexOf(';', nameStart) + 1;
+		RefactoringType type = RefactoringType.valueOf(line.substring(typeStart, nameStart - 1));
+		return new StoredRefactoring(type, line.substring(nameStart, descriptionStart - 1), line.substring(descriptionStart));
+	}
+
+	/**
+	 * Entry point of a worker process: mines the commits listed in a file, one per line, and appends their
+	 * refactorings to an output file.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			throw new IllegalArgumentException("Usage: ShardedRefactoringMiner <git-repo-folder> <commits-file> <output-file>");
+		}
+		List<String> commitIds = Files.readAllLines(new File(args[1]).toPath(), StandardCharsets.UTF_8);
+		GitService gitService = new GitServiceImpl();
+		try (Repository repo = gitService.openRepository(args[0]);
+				final BufferedWriter writer = Files.newBufferedWriter(new File(args[2]).toPath(), StandardCharsets.UTF_8)) {
+			GitHistoryRefactoringMinerImpl detector = new GitHistoryRefactoringMinerImpl();
+			detector.setCheckoutFree(true);
+			final Logger logger = LoggerFactory.getLogger(ShardedRefactoringMiner.class);
+			final Set<String> failedCommits = new HashSet<String>();
+			RefactoringHandler handler = new RefactoringHandler() {
+				@Override
+				public void handle(String commitId, List<Refactoring> refactorings) {
+					try {
+						for (Refactoring ref : refactorings) {
+							writer.write(formatRefactoring(commitId, ref));
+							writer.newLine();
+						}
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+
+				@Override
+				public void handleException(String commitId, Exception e) {
+					logger.warn(String.format("Error processing commit %s", commitId), e);
+					failedCommits.add(commitId);
+				}
+
+				@Override
+				public void handleTimeout(String commitId, AnalysisPhase phase, long elapsedTime) {
+					logger.warn(String.format("Timeout processing commit %s during %s after %d ms", commitId, phase, elapsedTime));
+					failedCommits.add(commitId);
+				}
+			};
+			for (String commitId : commitIds) {
+				// the start marker tells the coordinator which commit was being mined if the worker crashes
+				writer.write(COMMIT_STARTED_PREFIX + commitId);
+				writer.newLine();
+				writer.flush();
+				detector.detectAtCommit(repo, null, commitId, handler);
+				// the marker is flushed with the refactorings, so that a crash never leaves a commit half reported
+				writer.write((failedCommits.contains(commitId) ? COMMIT_FAILED_PREFIX : COMMIT_DONE_PREFIX) + commitId);
+				writer.newLine();
+				writer.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package org.refactoringminer.api;
+
+/**
+ * The phases of the analysis of a commit, as reported when its time budget expires.
+ */
+public enum AnalysisPhase {
+	/**
+	 * Building the models of the changed files.
+	 */
+	PARSING,
+	/**
+	 * Matching the classes, operations and attributes of the two models.
+	 */
+	DIFFING,
+	/**
+	 * Matching the statements of two operation bodies.
+	 */
+	MAPPING
+}
@@ -0,0 +1,202 @@
+package org.refactoringminer.api;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.AuthorRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitterRevFilter;
+import org.eclipse.jgit.revwalk.filter.MessageRevFilter;
+import org.eclipse.jgit.revwalk.filter.NotRevFilter;
+import org.eclipse.jgit.revwalk.filter.OrRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Selects the commits to analyze while the history is walked, so that the commits left out are never analyzed
+ * nor passed to {@link RefactoringHandler#skipCommit(String)}. Filters are combined with {@link #and(CommitFilter)},
+ * {@link #or(CommitFilter)} and {@link #negate()}, and are evaluated from left to right, so cheaper filters should
+ * come first.
+ *
+ * All filters but {@link #changedJavaFiles(int, int)} only read the commit itself, not its trees nor its files.
+ */
+public abstract class CommitFilter {
+
+	/**
+	 * @return A new JGit filter selecting the same commits, for a single revision walk.
+	 */
+	public abstract RevFilter toRevFilter();
+
+	public CommitFilter and(final CommitFilter other) {
+		final CommitFilter self = this;
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return AndRevFilter.create(self.toRevFilter(), other.toRevFilter());
+			}
+		};
+	}
+
+	public CommitFilter or(final CommitFilter other) {
+		final CommitFilter self = this;
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return OrRevFilter.create(self.toRevFilter(), other.toRevFilter());
+			}
+		};
+	}
+
+	public CommitFilter negate() {
+		final CommitFilter self = this;
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return NotRevFilter.create(self.toRevFilter());
+			}
+		};
+	}
+
+	/**
+	 * @param pattern A regular expression found in the name or email of the author, ignoring case.
+	 */
+	public static CommitFilter author(final String pattern) {
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return AuthorRevFilter.create(pattern);
+			}
+		};
+	}
+
+	/**
+	 * @param pattern A regular expression found in the name or email of the committer, ignoring case.
+	 */
+	public static CommitFilter committer(final String pattern) {
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return CommitterRevFilter.create(pattern);
+			}
+		};
+	}
+
+	/**
+	 * @param pattern A regular expression found in the message, ignoring case.
+	 */
+	public static CommitFilter message(final String pattern) {
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return MessageRevFilter.create(pattern);
+			}
+		};
+	}
+
+	/**
+	 * Select the commits committed on or after a date. The walk goes on past the older commits, since
+	 * stopping it would also leave out the commits selected by a negation or a disjunction of this filter.
+	 */
+	public static CommitFilter after(Date since) {
+		return between(since.getTime(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Select the commits committed on or before a date.
+	 */
+	public static CommitFilter before(Date until) {
+		return between(Long.MIN_VALUE, until.getTime());
+	}
+
+	/**
+	 * Select the commits committed between two dates, inclusive.
+	 */
+	public static CommitFilter between(Date since, Date until) {
+		return between(since.getTime(), until.getTime());
+	}
+
+	private static CommitFilter between(long since, long until) {
+		// commit times are in seconds, so the bounds are rounded inwards to whole seconds
+		final long sinceSeconds = since / 1000 + (since % 1000 > 0 ? 1 : 0);
+		final long untilSeconds = until / 1000 - (until % 1000 < 0 ? 1 : 0);
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return new RevFilter() {
+					@Override
+					public boolean include(RevWalk walker, RevCommit c) {
+						long commitTime = c.getCommitTime();
+						return commitTime >= sinceSeconds && commitTime <= untilSeconds;
+					}
+
+					@Override
+					public RevFilter clone() {
+						return this;
+					}
+
+					@Override
+					public boolean requiresCommitBody() {
+						return false;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Select the commits adding, deleting or modifying between {@code minimum} and {@code maximum} java files,
+	 * compared to their first parent. This filter compares the trees of the commits, without reading the files,
+	 * so it should come after the filters reading only the commits.
+	 */
+	public static CommitFilter changedJavaFiles(final int minimum, final int maximum) {
+		if (minimum < 0 || maximum < minimum) {
+			throw new IllegalArgumentException("The number of changed files must be between 0 and the maximum");
+		}
+		return new CommitFilter() {
+			@Override
+			public RevFilter toRevFilter() {
+				return new RevFilter() {
+					@Override
+					public boolean include(RevWalk walker, RevCommit c) throws IOException {
+						TreeWalk treeWalk = new TreeWalk(walker.getObjectReader());
+						try {
+							treeWalk.setRecursive(true);
+							treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(".java")));
+							if (c.getParentCount() > 0) {
+								treeWalk.addTree(walker.parseCommit(c.getParent(0)).getTree());
+							} else {
+								treeWalk.addTree(new EmptyTreeIterator());
+							}
+							treeWalk.addTree(c.getTree());
+							int count = 0;
+							while (treeWalk.next()) {
+								if (++count > maximum) {
+									return false;
+								}
+							}
+							return count >= minimum;
+						} finally {
+							treeWalk.close();
+						}
+					}
+
+					@Override
+					public RevFilter clone() {
+						return this;
+					}
+
+					@Override
+					public boolean requiresCommitBody() {
+						return false;
+					}
+				};
+			}
+		};
+	}
+}
@@ -0,0 +1,59 @@
+package org.refactoringminer.api;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * The outcome of the analysis of one commit: either the refactorings detected in it, or the exception
+ * that stopped its analysis.
+ */
+public class CommitResult {
+
+	private final String commitId;
+	private final RevCommit commit;
+	private final List<Refactoring> refactorings;
+	private final Exception exception;
+
+	public CommitResult(RevCommit commit, List<Refactoring> refactorings) {
+		this.commitId = commit.getId().getName();
+		this.commit = commit;
+		this.refactorings = refactorings;
+		this.exception = null;
+	}
+
+	public CommitResult(String commitId, Exception exception) {
+		this.commitId = commitId;
+		this.commit = null;
+		this.refactorings = Collections.emptyList();
+		this.exception = exception;
+	}
+
+	public String getCommitId() {
+		return commitId;
+	}
+
+	/**
+	 * @return The metadata of the commit, or null if its analysis failed.
+	 */
+	public RevCommit getCommit() {
+		return commit;
+	}
+
+	public List<Refactoring> getRefactorings() {
+		return refactorings;
+	}
+
+	/**
+	 * @return The exception that stopped the analysis of the commit, a {@link CommitTimeoutException} if it
+	 * exceeded its time budget, or null if it was analyzed successfully.
+	 */
+	public Exception getException() {
+		return exception;
+	}
+
+	public boolean isSuccessful() {
+		return exception == null;
+	}
+}
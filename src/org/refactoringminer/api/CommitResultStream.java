@@ -0,0 +1,19 @@
+package org.refactoringminer.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Results of a history analysis, pulled one commit at a time by the consumer. The analysis runs on a background
+ * thread and keeps at most a fixed number of results ahead of the consumer: when the buffer is full, it pauses
+ * until the consumer takes the next result.
+ *
+ * {@link #hasNext()} blocks until the next result is available or the analysis is over. If the analysis itself
+ * fails (e.g. the repository cannot be read), the failure is rethrown by {@link #hasNext()} as a
+ * {@link RuntimeException}. A stream that is not consumed to the end must be closed, which stops the analysis.
+ */
+public interface CommitResultStream extends Iterator<CommitResult>, Closeable {
+
+	@Override
+	void close();
+}
@@ -0,0 +1,32 @@
+package org.refactoringminer.api;
+
+/**
+ * Thrown when the analysis of a commit exceeds its time budget.
+ */
+public class CommitTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final AnalysisPhase phase;
+	private final long elapsedTime;
+
+	public CommitTimeoutException(AnalysisPhase phase, long elapsedTime) {
+		super(String.format("Time budget exceeded during %s after %d ms", phase, elapsedTime));
+		this.phase = phase;
+		this.elapsedTime = elapsedTime;
+	}
+
+	/**
+	 * @return The phase of the analysis that was running when the time budget expired.
+	 */
+	public AnalysisPhase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return The time in milliseconds spent on the commit.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+}
@@ -72,6 +72,50 @@ public interface GitHistoryRefactoringMiner {
 	 */
 	void detectAtCommit(Repository repository, String cloneURL, String commitId, RefactoringHandler handler);
 
+	/**
+	 * Iterate over each commit of a git repository, as {@link #detectAll(Repository, String, RefactoringHandler)},
+	 * and stream the results to the caller instead of pushing them to a handler.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param branch A branch to start the log lookup. If null, commits from all branches are analyzed.
+	 * @param bufferSize The maximum number of results detected ahead of the consumer.
+	 * @return The stream of the results, in the order they would be passed to a handler.
+	 */
+	CommitResultStream streamAll(Repository repository, String branch, int bufferSize);
+
+	/**
+	 * Iterate over commits between two release tags of a git repository, as
+	 * {@link #detectBetweenTags(Repository, String, String, RefactoringHandler)}, and stream the results to the caller.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param startTag An annotated tag to start the log lookup.
+	 * @param endTag An annotated tag to end the log lookup.
+	 * @param bufferSize The maximum number of results detected ahead of the consumer.
+	 * @return The stream of the results, in the order they would be passed to a handler.
+	 */
+	CommitResultStream streamBetweenTags(Repository repository, String startTag, String endTag, int bufferSize);
+
+	/**
+	 * Iterate over commits between two commits of a git repository, as
+	 * {@link #detectBetweenCommits(Repository, String, String, RefactoringHandler)}, and stream the results to the caller.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param startCommitId The SHA key that identifies the commit to start the log lookup.
+	 * @param endCommitId The SHA key that identifies the commit to end the log lookup.
+	 * @param bufferSize The maximum number of results detected ahead of the consumer.
+	 * @return The stream of the results, in the order they would be passed to a handler.
+	 */
+	CommitResultStream streamBetweenCommits(Repository repository, String startCommitId, String endCommitId, int bufferSize);
+
+	/**
+	 * Analyze only the commits selected by the filter in the {@code detect*} and {@code stream*} methods, except
+	 * {@link #detectAtCommit(Repository, String, String, RefactoringHandler)}. The filter is applied while the history
+	 * is walked, so the commits left out are never analyzed nor passed to {@link RefactoringHandler#skipCommit(String)}.
+	 * 
+	 * @param commitFilter The filter of the commits to analyze, or null to analyze all commits.
+	 */
+	void setCommitFilter(CommitFilter commitFilter);
+
 	/**
 	 * @return An ID that represents the current configuration for the Refactoring Miner algorithm in use.
 	 */
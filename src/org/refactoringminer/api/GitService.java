@@ -2,7 +2,9 @@ package org.refactoringminer.api;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -42,4 +44,57 @@ public interface GitService {
 	RevWalk createRevsWalkBetweenCommits(Repository repository, String startCommitId, String endCommitId) throws Exception;
 
 	void fileTreeDiff(Repository repository, RevCommit currentCommit, List<String> filesBefore, List<String> filesCurrent, Map<String, String> renamedFilesHint) throws Exception;
+
+	/**
+	 * Read the contents of the given files as they are stored in the tree of {@code commit}, without checking it out.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param commit The commit whose tree is read. It must have been parsed by a {@code RevWalk}.
+	 * @param filePaths The paths of the files to read, relative to the repository root.
+	 * @param fileContents The map to populate with the contents of the files, keyed by path, in the order of {@code filePaths}.
+	 * @throws Exception propagated from JGit library.
+	 */
+	void populateFileContents(Repository repository, RevCommit commit, List<String> filePaths, Map<String, String> fileContents) throws Exception;
+
+	/**
+	 * Find the blobs of the given files in the tree of {@code commit}.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param commit The commit whose tree is read. It must have been parsed by a {@code RevWalk}.
+	 * @param filePaths The paths of the files, relative to the repository root.
+	 * @param blobIds The map to populate with the blob id of each file, keyed by path, in the order of {@code filePaths}.
+	 * @throws Exception propagated from JGit library.
+	 */
+	void populateBlobIds(Repository repository, RevCommit commit, List<String> filePaths, Map<String, ObjectId> blobIds) throws Exception;
+
+	/**
+	 * Find the blobs of all Java files in the tree of {@code commit}.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param commit The commit whose tree is read. It must have been parsed by a {@code RevWalk}.
+	 * @param blobIds The map to populate with the blob id of each Java file, keyed by path.
+	 * @throws Exception propagated from JGit library.
+	 */
+	void populateJavaBlobIds(Repository repository, RevCommit commit, Map<String, ObjectId> blobIds) throws Exception;
+
+	/**
+	 * Read the contents of the given blobs.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param blobIds The blobs to read, keyed by file path.
+	 * @param fileContents The map to populate with the contents of the blobs, keyed by file path, in the order of {@code blobIds}.
+	 * @throws Exception propagated from JGit library.
+	 */
+	void populateFileContents(Repository repository, Map<String, ObjectId> blobIds, Map<String, String> fileContents) throws Exception;
+
+	/**
+	 * Find which of the given directories exist in the tree of {@code commit}, without checking it out.
+	 * 
+	 * @param repository A git repository (from JGit library).
+	 * @param commit The commit whose tree is read. It must have been parsed by a {@code RevWalk}.
+	 * @param directories The directory paths to look up, relative to the repository root.
+	 * @param repositoryDirectories The set to populate with the directories that exist in the tree.
+	 * @throws Exception propagated from JGit library.
+	 */
+	void populateDirectories(Repository repository, RevCommit commit, Set<String> directories, Set<String> repositoryDirectories) throws Exception;
 }
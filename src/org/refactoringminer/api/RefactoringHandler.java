@@ -50,13 +50,48 @@ public abstract class RefactoringHandler {
         throw new RuntimeException(e);
     }
 
+	/**
+	 * This method is called instead of {@link #handle(String, List)} when the analysis of a commit exceeds
+	 * its time budget. The analysis then continues with the next commit.
+	 * You may override this method to implement custom logic (e.g. record the commit to analyze it later).
+	 * 
+	 * @param commitId The SHA key that identifies the commit.
+	 * @param phase The phase of the analysis that was running when the time budget expired.
+	 * @param elapsedTime The time in milliseconds spent on the commit.
+	 */
+	public void handleTimeout(String commitId, AnalysisPhase phase, long elapsedTime) {}
+
+	/**
+	 * This method is called with a batch of analyzed commits, in the order of analysis, when the handler calls are
+	 * dispatched asynchronously (see {@code GitHistoryRefactoringMinerImpl.setAsyncHandlerDispatch}).
+	 * By default it passes each result to {@link #handle(String, List)} and {@link #handle(RevCommit, List)},
+	 * {@link #handleTimeout(String, AnalysisPhase, long)} or {@link #handleException(String, Exception)}.
+	 * You may override this method to process the whole batch at once (e.g. in a single database transaction).
+	 *
+	 * @param results The results of the commits analyzed since the previous batch.
+	 */
+	public void handleBatch(List<CommitResult> results) {
+		for (CommitResult result : results) {
+			Exception e = result.getException();
+			if (e == null) {
+				handle(result.getCommitId(), result.getRefactorings());
+				handle(result.getCommit(), result.getRefactorings());
+			} else if (e instanceof CommitTimeoutException) {
+				CommitTimeoutException timeout = (CommitTimeoutException) e;
+				handleTimeout(result.getCommitId(), timeout.getPhase(), timeout.getElapsedTime());
+			} else {
+				handleException(result.getCommitId(), e);
+			}
+		}
+	}
+
 	/**
 	 * This method is called after all commits are analyzed.
 	 * You may override this method to implement custom logic.
 	 * 
 	 * @param refactoringsCount Total number of refactorings detected. 
 	 * @param commitsCount Total number of commits analyzed.
-	 * @param errorCommitsCount Total number of commits not analyzed due to errors.
+	 * @param errorCommitsCount Total number of commits not analyzed due to errors or timeouts.
 	 */
 	public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {}
 }
@@ -0,0 +1,173 @@
+package org.refactoringminer.rm1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.CommitResult;
+import org.refactoringminer.api.CommitTimeoutException;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handler that queues the results of the analysis and passes them in batches to another handler on a dedicated
+ * thread, so that slow handlers (e.g. writing to a database) do not hold up the analysis.
+ *
+ * The miner calls {@link #handle(String, List)} and then {@link #handle(RevCommit, List)} for each commit, so a
+ * result is queued on the second call. The analysis blocks while the queue is full. A failure of the delegate is
+ * rethrown on the analysis thread by the next call, and {@link #onFinish(int, int, int)} waits for all queued
+ * results to be handled before passing it on.
+ */
+class AsyncHandlerDispatcher extends RefactoringHandler {
+
+	private static final Object END = new Object();
+
+	Logger logger = LoggerFactory.getLogger(AsyncHandlerDispatcher.class);
+
+	private final RefactoringHandler delegate;
+	private final int batchSize;
+	private final BlockingQueue<Object> queue;
+	private final Thread dispatcher;
+	private volatile Throwable failure = null;
+	private boolean failureThrown = false;
+	private boolean finished = false;
+
+	AsyncHandlerDispatcher(RefactoringHandler delegate, int queueSize, int batchSize) {
+		this.delegate = delegate;
+		this.batchSize = batchSize;
+		this.queue = new ArrayBlockingQueue<Object>(queueSize);
+		this.dispatcher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				dispatch();
+			}
+		}, "RefactoringMiner-handler");
+		this.dispatcher.setDaemon(true);
+		this.dispatcher.start();
+	}
+
+	private void dispatch() {
+		List<Object> elements = new ArrayList<Object>(batchSize);
+		while (true) {
+			try {
+				elements.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(elements, batchSize - 1);
+			boolean end = elements.remove(END);
+			if (!elements.isEmpty() && failure == null) {
+				List<CommitResult> batch = new ArrayList<CommitResult>(elements.size());
+				for (Object element : elements) {
+					batch.add((CommitResult) element);
+				}
+				try {
+					delegate.handleBatch(batch);
+				} catch (Throwable e) {
+					// later results are dropped, the analysis thread fails on its next call
+					failure = e;
+				}
+			}
+			elements.clear();
+			if (end) {
+				return;
+			}
+		}
+	}
+
+	private void put(Object element) {
+		try {
+			while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+				if (!dispatcher.isAlive()) {
+					throw new IllegalStateException("The handler thread stopped");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			failureThrown = true;
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+			throw new RuntimeException(failure);
+		}
+	}
+
+	@Override
+	public boolean skipCommit(String commitId) {
+		return delegate.skipCommit(commitId);
+	}
+
+	@Override
+	public void handle(String commitId, List<Refactoring> refactorings) {
+		checkFailure();
+	}
+
+	@Override
+	public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+		put(new CommitResult(commitData, refactorings));
+	}
+
+	@Override
+	public void handleException(String commitId, Exception e) {
+		put(new CommitResult(commitId, e));
+	}
+
+	@Override
+	public void handleTimeout(String commitId, AnalysisPhase phase, long elapsedTime) {
+		put(new CommitResult(commitId, new CommitTimeoutException(phase, elapsedTime)));
+	}
+
+	@Override
+	public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+		flush();
+		checkFailure();
+		delegate.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+	}
+
+	/**
+	 * Wait until the queued results are handled and stop the dispatcher thread, also when the analysis ended
+	 * without calling {@link #onFinish(int, int, int)}. A failure of the delegate that was not rethrown is logged.
+	 */
+	void close() {
+		flush();
+		if (failure != null && !failureThrown) {
+			logger.warn("Handler failed", failure);
+		}
+	}
+
+	private void flush() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			// the dispatcher handles the queued results before it reaches the end marker
+			while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+				if (!dispatcher.isAlive()) {
+					return;
+				}
+			}
+			dispatcher.join();
+		} catch (InterruptedException e) {
+			dispatcher.interrupt();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package org.refactoringminer.rm1;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.CommitResult;
+import org.refactoringminer.api.CommitResultStream;
+import org.refactoringminer.api.CommitTimeoutException;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+
+/**
+ * Runs an analysis on a background thread with a handler that hands its results over through a bounded queue.
+ * The handler blocks while the queue is full, which pauses the analysis until the consumer catches up.
+ */
+abstract class BlockingCommitResultStream implements CommitResultStream {
+
+	private static final Object END = new Object();
+
+	private final BlockingQueue<Object> queue;
+	private final Thread producer;
+	private volatile boolean closed = false;
+	private Object next = null;
+
+	BlockingCommitResultStream(int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("The buffer size must be positive");
+		}
+		this.queue = new ArrayBlockingQueue<Object>(bufferSize);
+		this.producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Object last = END;
+				try {
+					mine(new QueueHandler());
+				} catch (Throwable e) {
+					// also an Error, without which the consumer would wait for the end forever
+					last = e;
+				}
+				if (!closed) {
+					put(last);
+				}
+			}
+		}, "RefactoringMiner-stream");
+		this.producer.setDaemon(true);
+	}
+
+	/**
+	 * Run the analysis, passing its results to the given handler.
+	 */
+	protected abstract void mine(RefactoringHandler handler) throws Exception;
+
+	void start() {
+		producer.start();
+	}
+
+	private void put(Object element) {
+		try {
+			// poll the closed flag rather than interrupting the producer, which may be in the middle of reading the repository
+			while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+				if (closed) {
+					throw new CancellationException("The stream was closed");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("The analysis was interrupted");
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			if (closed) {
+				return false;
+			}
+			try {
+				next = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		if (next instanceof Throwable) {
+			Throwable e = (Throwable) next;
+			next = END;
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			throw new RuntimeException(e);
+		}
+		return next != END;
+	}
+
+	@Override
+	public CommitResult next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		CommitResult result = (CommitResult) next;
+		next = null;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		next = END;
+		queue.clear();
+	}
+
+	private class QueueHandler extends RefactoringHandler {
+		@Override
+		public boolean skipCommit(String commitId) {
+			if (closed) {
+				// stops the revision walk instead of skipping the rest of the history commit by commit
+				throw new CancellationException("The stream was closed");
+			}
+			return false;
+		}
+
+		@Override
+		public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+			put(new CommitResult(commitData, refactorings));
+		}
+
+		@Override
+		public void handleException(String commitId, Exception e) {
+			if (e instanceof CancellationException) {
+				throw (CancellationException) e;
+			}
+			put(new CommitResult(commitId, e));
+		}
+
+		@Override
+		public void handleTimeout(String commitId, AnalysisPhase phase, long elapsedTime) {
+			put(new CommitResult(commitId, new CommitTimeoutException(phase, elapsedTime)));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package org.refactoringminer.rm1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Orders the commits of a parallel analysis so that the most expensive ones start first, so that a few large
+ * commits at the end of the history do not leave all but one worker idle (longest processing time first).
+ *
+ * The cost of a commit is estimated from its changed java files, as the total size of their blobs before and
+ * after the commit plus a fixed overhead per file. When the timings of an earlier run are available, the measured
+ * time is used instead, converted to the same unit with the ratio between time and estimate of the earlier run.
+ * Timings are stored as lines of commit id, elapsed milliseconds and estimated cost separated by tabs.
+ */
+class CommitScheduler {
+
+	// the cost of parsing and diffing a file regardless of its size, in bytes
+	private static final long FILE_OVERHEAD = 4096;
+
+	private final Repository repository;
+	private final File timingsFile;
+	private final Map<String, Timing> timings = new LinkedHashMap<String, Timing>();
+	private final Map<String, Long> estimates = new HashMap<String, Long>();
+
+	CommitScheduler(Repository repository, File timingsFile) {
+		this.repository = repository;
+		this.timingsFile = timingsFile;
+	}
+
+	/**
+	 * Read the timings of an earlier run, if the timings file exists.
+	 */
+	void load() throws IOException {
+		if (timingsFile != null && timingsFile.exists()) {
+			for (String line : Files.readAllLines(timingsFile.toPath(), StandardCharsets.UTF_8)) {
+				String[] fields = line.split("\t");
+				if (fields.length == 3) {
+					timings.put(fields[0], new Timing(Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The commits of the given iterator, from the most to the least expensive.
+	 */
+	Iterator<RevCommit> schedule(Iterator<RevCommit> commits) throws IOException {
+		List<RevCommit> scheduled = new ArrayList<RevCommit>();
+		final Map<RevCommit, Long> costs = new HashMap<RevCommit, Long>();
+		double millisPerCost = millisPerCost();
+		try (ObjectReader reader = repository.newObjectReader()) {
+			while (commits.hasNext()) {
+				RevCommit commit = commits.next();
+				String commitId = commit.getName();
+				Timing timing = timings.get(commitId);
+				long cost;
+				if (timing != null && millisPerCost > 0) {
+					cost = (long) (timing.elapsedTime / millisPerCost);
+				} else {
+					cost = estimate(reader, commit);
+					estimates.put(commitId, cost);
+				}
+				costs.put(commit, cost);
+				scheduled.add(commit);
+			}
+		}
+		// the sort is stable, so commits of equal cost keep the order of the walk
+		Collections.sort(scheduled, new Comparator<RevCommit>() {
+			@Override
+			public int compare(RevCommit c1, RevCommit c2) {
+				return Long.compare(costs.get(c2), costs.get(c1));
+			}
+		});
+		return scheduled.iterator();
+	}
+
+	private double millisPerCost() {
+		long elapsedTime = 0;
+		long cost = 0;
+		for (Timing timing : timings.values()) {
+			elapsedTime += timing.elapsedTime;
+			cost += timing.estimatedCost;
+		}
+		return cost > 0 ? (double) elapsedTime / cost : 0;
+	}
+
+	private long estimate(ObjectReader reader, RevCommit commit) throws IOException {
+		if (commit.getParentCount() == 0) {
+			return 0;
+		}
+		long cost = 0;
+		try (TreeWalk treeWalk = new TreeWalk(reader)) {
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(".java")));
+			treeWalk.addTree(commit.getParent(0).getTree());
+			treeWalk.addTree(commit.getTree());
+			while (treeWalk.next()) {
+				cost += FILE_OVERHEAD;
+				for (int i = 0; i < 2; i++) {
+					ObjectId blobId = treeWalk.getObjectId(i);
+					if (!blobId.equals(ObjectId.zeroId())) {
+						cost += reader.getObjectSize(blobId, Constants.OBJ_BLOB);
+					}
+				}
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Record the time taken by the analysis of a commit, to be saved in the timings file.
+	 */
+	void record(String commitId, long elapsedTime) {
+		Long estimate = estimates.get(commitId);
+		Timing previous = timings.get(commitId);
+		if (estimate != null) {
+			timings.put(commitId, new Timing(elapsedTime, estimate));
+		} else if (previous != null) {
+			timings.put(commitId, new Timing(elapsedTime, previous.estimatedCost));
+		}
+	}
+
+	void save() throws IOException {
+		if (timingsFile == null) {
+			return;
+		}
+		List<String> lines = new ArrayList<String>();
+		for (Map.Entry<String, Timing> entry : timings.entrySet()) {
+			lines.add(entry.getKey() + "\t" + entry.getValue().elapsedTime + "\t" + entry.getValue().estimatedCost);
+		}
+		Files.write(timingsFile.toPath(), lines, StandardCharsets.UTF_8);
+	}
+
+	private static class Timing {
+		private final long elapsedTime;
+		private final long estimatedCost;
+
+		private Timing(long elapsedTime, long estimatedCost) {
+			this.elapsedTime = elapsedTime;
+			this.estimatedCost = estimatedCost;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.refactoringminer.rm1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.refactoringminer.api.Refactoring;
+
+/**
+ * LRU cache of the refactorings detected in a commit, keyed by a fingerprint of everything the detection reads
+ * from the commit: the blobs of the changed java files before and after it, the rename hints and the directories
+ * of the changed files that still exist after it. Commits with the same delta, such as cherry-picks, rebased
+ * commits and backports, are then answered without parsing and diffing them again.
+ *
+ * The refactorings are kept as {@link StoredRefactoring}s, so the cache does not retain the models they were
+ * detected in. The cache may be shared by several miners, since the fingerprint also covers the configuration of
+ * the miner, such as the refactoring types it considers.
+ */
+public class DeltaResultCache {
+
+	private final int maximumEntries;
+	private final LinkedHashMap<String, List<Refactoring>> entries = new LinkedHashMap<String, List<Refactoring>>(16, 0.75f, true);
+	private long hitCount;
+	private long missCount;
+
+	public DeltaResultCache(int maximumEntries) {
+		if (maximumEntries < 1) {
+			throw new IllegalArgumentException("The maximum number of entries must be positive");
+		}
+		this.maximumEntries = maximumEntries;
+	}
+
+	/**
+	 * @return The fingerprint of a commit analyzed with the given configuration key, with the given changed files,
+	 * rename hints, directories and module roots, which are null if the commit is not partitioned by module.
+	 */
+	static String fingerprint(String configurationKey, Map<String, ObjectId> blobIdsBefore, Map<String, ObjectId> blobIdsCurrent,
+			Map<String, String> renamedFilesHint, Set<String> repositoryDirectories, Set<String> moduleRoots) {
+		StringBuilder delta = new StringBuilder();
+		delta.append("c\t").append(configurationKey).append('\n');
+		for (Map.Entry<String, ObjectId> blob : new TreeMap<String, ObjectId>(blobIdsBefore).entrySet()) {
+			delta.append("-\t").append(blob.getKey()).append('\t').append(blob.getValue().getName()).append('\n');
+		}
+		for (Map.Entry<String, ObjectId> blob : new TreeMap<String, ObjectId>(blobIdsCurrent).entrySet()) {
+			delta.append("+\t").append(blob.getKey()).append('\t').append(blob.getValue().getName()).append('\n');
+		}
+		for (Map.Entry<String, String> rename : new TreeMap<String, String>(renamedFilesHint).entrySet()) {
+			delta.append(">\t").append(rename.getKey()).append('\t').append(rename.getValue()).append('\n');
+		}
+		for (String directory : new TreeSet<String>(repositoryDirectories)) {
+			delta.append("d\t").append(directory).append('\n');
+		}
+		if (moduleRoots != null) {
+			delta.append("m\n");
+			for (String moduleRoot : new TreeSet<String>(moduleRoots)) {
+				delta.append("m\t").append(moduleRoot).append('\n');
+			}
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(delta.toString().getBytes(StandardCharsets.UTF_8));
+			return ObjectId.fromRaw(digest).getName();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return The refactorings detected in a commit with the given fingerprint, or null.
+	 */
+	public synchronized List<Refactoring> get(String fingerprint) {
+		List<Refactoring> refactorings = entries.get(fingerprint);
+		if (refactorings != null) {
+			hitCount++;
+		} else {
+			missCount++;
+		}
+		return refactorings;
+	}
+
+	public void put(String fingerprint, List<Refactoring> refactorings) {
+		List<Refactoring> storedRefactorings = new ArrayList<Refactoring>(refactorings.size());
+		for (Refactoring refactoring : refactorings) {
+			storedRefactorings.add(new StoredRefactoring(refactoring.getRefactoringType(), refactoring.getName(), refactoring.toString()));
+		}
+		synchronized (this) {
+			entries.put(fingerprint, Collections.unmodifiableList(storedRefactorings));
+			if (entries.size() > maximumEntries) {
+				entries.remove(entries.keySet().iterator().next());
+			}
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Delta result cache [Entries: %d, Hits: %d, Misses: %d]", entries.size(), hitCount, missCount);
+	}
+}
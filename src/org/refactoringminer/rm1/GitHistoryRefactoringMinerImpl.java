@@ -2,6 +2,7 @@ package org.refactoringminer.rm1;
 
 import gr.uom.java.xmi.UMLModel;
 import gr.uom.java.xmi.UMLModelASTReader;
+import gr.uom.java.xmi.diff.UMLModelDiff;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,33 +11,58 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.kohsuke.github.GHCommit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.CommitFilter;
+import org.refactoringminer.api.CommitResultStream;
+import org.refactoringminer.api.CommitTimeoutException;
 import org.refactoringminer.api.GitHistoryRefactoringMiner;
 import org.refactoringminer.api.GitService;
 import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.api.RefactoringHandler;
 import org.refactoringminer.api.RefactoringType;
+import org.refactoringminer.util.CommitJournal;
+import org.refactoringminer.util.Deadline;
 import org.refactoringminer.util.GitServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +71,28 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 
 	Logger logger = LoggerFactory.getLogger(GitHistoryRefactoringMinerImpl.class);
 	private Set<RefactoringType> refactoringTypesToConsider = null;
+	private boolean checkoutFree = false;
+	private int numberOfThreads = 1;
+	private boolean deliverInCompletionOrder = false;
+	private boolean rollingProjectModel = false;
+	private UMLClassCache umlClassCache = null;
+	private RefactoringResultStore resultStore = null;
+	private DeltaResultCache deltaResultCache = null;
+	private int renamePairBudget = GitServiceImpl.DEFAULT_RENAME_PAIR_BUDGET;
+	private long commitTimeout = 0;
+	private boolean costAwareScheduling = false;
+	private File commitTimingsFile = null;
+	private ExecutorService executorService = null;
+	private int handlerQueueSize = 0;
+	private int handlerBatchSize = 0;
+	private CommitJournal commitJournal = null;
+	private CommitFilter commitFilter = null;
+	private int moduleThreads = 0;
+	private ExecutorService moduleExecutor = null;
+	private int parserThreads = 0;
+	// whether the refactorings of the commit analyzed last on a thread were taken from the result store or the delta cache
+	private final ThreadLocal<Boolean> resultReused = new ThreadLocal<Boolean>();
+	private ExecutorService parserExecutor = null;
 	
 	public GitHistoryRefactoringMinerImpl() {
 		this.setRefactoringTypesToConsider(
@@ -75,7 +123,228 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		}
 	}
 	
-	private void detect(GitService gitService, Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+	/**
+	 * When enabled, the files of each analyzed commit and its parent are read directly from the git object
+	 * database instead of checking out both commits, so the working tree is never modified.
+	 */
+	public void setCheckoutFree(boolean checkoutFree) {
+		this.checkoutFree = checkoutFree;
+	}
+
+	/**
+	 * Analyze up to {@code numberOfThreads} commits at the same time. With more than one thread the models are
+	 * always built from the git object database, as in {@link #setCheckoutFree(boolean)}, since the workers
+	 * cannot share the working tree. Handler callbacks are still invoked from the thread calling {@code detect*}.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1");
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Analyze commits in parallel on the given executor instead of a pool created for each run. The executor may
+	 * be shared by several miners, each of which keeps at most twice its number of threads commits in flight, and
+	 * it is not shut down at the end of a run.
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
+	private boolean analyzesInParallel() {
+		return numberOfThreads > 1 || executorService != null;
+	}
+
+	/**
+	 * When analyzing commits in parallel, deliver each commit to the handler as soon as its analysis completes,
+	 * instead of the default order of the revision walk.
+	 */
+	public void setDeliverInCompletionOrder(boolean deliverInCompletionOrder) {
+		this.deliverInCompletionOrder = deliverInCompletionOrder;
+	}
+
+	/**
+	 * When analyzing commits in parallel, start the most expensive commits first, so that the run does not end
+	 * waiting for a few large commits. The cost of a commit is estimated from the size of its changed java files,
+	 * or taken from the timings file of an earlier run (see {@link #setCommitTimingsFile(File)}). All commits to
+	 * analyze are then read before the analysis starts, and in-order delivery follows the scheduled order.
+	 */
+	public void setCostAwareScheduling(boolean costAwareScheduling) {
+		this.costAwareScheduling = costAwareScheduling;
+	}
+
+	/**
+	 * File where the time taken by each commit is saved at the end of a parallel analysis with cost-aware
+	 * scheduling, and read at the beginning of the next one to order its commits.
+	 */
+	public void setCommitTimingsFile(File commitTimingsFile) {
+		this.commitTimingsFile = commitTimingsFile;
+	}
+
+	/**
+	 * When enabled, a sequential analysis keeps a model of the whole project and updates it in place with the
+	 * changed files of each commit. The model after a commit is reused as the model before its child commit, so
+	 * the parent side of a commit is never parsed again, and classes outside the changed files are visible when
+	 * resolving inheritance. Commits are walked from the oldest to the newest, and the whole project is parsed
+	 * again only when a commit does not continue the previous one (e.g. after a merge). It has no effect when
+	 * analyzing commits in parallel.
+	 */
+	public void setRollingProjectModel(boolean rollingProjectModel) {
+		this.rollingProjectModel = rollingProjectModel;
+	}
+
+	/**
+	 * Reuse the classes parsed from a file version whenever the same blob is read again at the same path,
+	 * e.g. as the current side of a commit and the parent side of its child, instead of parsing it again.
+	 * The cache may be shared by several miners. Pass null to disable caching.
+	 */
+	public void setUMLClassCache(UMLClassCache umlClassCache) {
+		this.umlClassCache = umlClassCache;
+	}
+
+	/**
+	 * Answer commits analyzed before with the same configuration (see {@link #getConfigId()},
+	 * {@link #setRefactoringTypesToConsider(RefactoringType...)}, {@link #setModulePartitioning(int)} and
+	 * {@link #setRollingProjectModel(boolean)}) from the given store, and store the refactorings of
+	 * the other commits. Commits answered from the store are neither checked out nor parsed, and their refactorings
+	 * are {@link StoredRefactoring}s. Pass null to analyze every commit.
+	 */
+	public void setResultStore(RefactoringResultStore resultStore) {
+		this.resultStore = resultStore;
+	}
+
+	/**
+	 * Reuse the refactorings of a commit for the later commits with the same changes, such as cherry-picks and
+	 * rebased commits, instead of analyzing them again. Only commits whose models are built from the git object
+	 * database, as in {@link #setCheckoutFree(boolean)}, are compared, since their analysis depends only on the
+	 * changed files. Reused refactorings are {@link StoredRefactoring}s. Pass null to analyze every commit.
+	 */
+	public void setDeltaResultCache(DeltaResultCache deltaResultCache) {
+		this.deltaResultCache = deltaResultCache;
+	}
+
+	/**
+	 * @see GitServiceImpl#setRenamePairBudget(int)
+	 */
+	public void setRenamePairBudget(int renamePairBudget) {
+		if (renamePairBudget < 0) {
+			throw new IllegalArgumentException("The rename pair budget cannot be negative");
+		}
+		this.renamePairBudget = renamePairBudget;
+	}
+
+	/**
+	 * Stop the analysis of a commit that takes longer than {@code commitTimeout} milliseconds and report it through
+	 * {@link RefactoringHandler#handleTimeout(String, AnalysisPhase, long)}. The parsing and diffing stop at their
+	 * next check of the time budget, so a commit may run slightly longer. Pass 0 to analyze commits without limit.
+	 */
+	public void setCommitTimeout(long commitTimeout) {
+		if (commitTimeout < 0) {
+			throw new IllegalArgumentException("The commit timeout cannot be negative");
+		}
+		this.commitTimeout = commitTimeout;
+	}
+
+	/**
+	 * Pass the results to the handler on a dedicated thread, in batches of up to {@code batchSize} commits through
+	 * {@link RefactoringHandler#handleBatch(List)}, so that a slow handler does not hold up the analysis. At most
+	 * {@code queueSize} results wait for the handler, after which the analysis blocks. All results are handled before
+	 * {@link RefactoringHandler#onFinish(int, int, int)} is called, while {@link RefactoringHandler#skipCommit(String)}
+	 * is still called from the thread calling {@code detect*}. Pass 0 to call the handler directly.
+	 */
+	public void setAsyncHandlerDispatch(int queueSize, int batchSize) {
+		if (queueSize < 0 || batchSize < 0 || (queueSize == 0) != (batchSize == 0)) {
+			throw new IllegalArgumentException("The queue and batch sizes must be both positive or both 0");
+		}
+		this.handlerQueueSize = queueSize;
+		this.handlerBatchSize = batchSize;
+	}
+
+	/**
+	 * Skip the commits recorded in the journal and record each analyzed commit once the handler has handled its
+	 * result, so that an interrupted run can be resumed by running it again with the same journal.
+	 * Pass null to analyze every commit.
+	 */
+	public void setCommitJournal(CommitJournal commitJournal) {
+		this.commitJournal = commitJournal;
+	}
+
+	/**
+	 * Diff the modules touched by a commit separately, on up to {@code numberOfThreads} threads, so that added and
+	 * removed classes are only compared within their module. A module is a directory with a pom.xml, build.gradle or
+	 * build.gradle.kts file. The classes of removed and added files with the same name in different modules, or with
+	 * a rename hint between them, are then diffed together to detect the classes moved across modules. Other
+	 * refactorings across modules, e.g. methods moved to a class of another module, are not detected. Only commits
+	 * whose models are built from the git object database, as in {@link #setCheckoutFree(boolean)}, are partitioned,
+	 * and not with a rolling project model. Pass 0 to diff each commit at once.
+	 */
+	public void setModulePartitioning(int numberOfThreads) {
+		if (numberOfThreads < 0) {
+			throw new IllegalArgumentException("The number of threads cannot be negative");
+		}
+		this.moduleThreads = numberOfThreads;
+	}
+
+	/**
+	 * Parse the files of a commit on up to {@code numberOfThreads} threads, each file with its own parser, and parse
+	 * the files before and after the commit at the same time. The threads are shared by the commits analyzed in
+	 * parallel. Pass 0 to parse the files on the thread analyzing the commit.
+	 */
+	public void setParserThreads(int numberOfThreads) {
+		if (numberOfThreads < 0) {
+			throw new IllegalArgumentException("The number of threads cannot be negative");
+		}
+		this.parserThreads = numberOfThreads;
+	}
+
+	@Override
+	public void setCommitFilter(CommitFilter commitFilter) {
+		this.commitFilter = commitFilter;
+	}
+
+	private GitServiceImpl configure(GitServiceImpl gitService) {
+		gitService.setRenamePairBudget(renamePairBudget);
+		gitService.setCommitJournal(commitJournal);
+		gitService.setCommitFilter(commitFilter);
+		return gitService;
+	}
+
+	private boolean usesRollingProjectModel() {
+		return rollingProjectModel && !analyzesInParallel();
+	}
+
+	private Iterator<RevCommit> iterator(RevWalk walk) {
+		if (usesRollingProjectModel()) {
+			// parents have to be analyzed before their children to roll the project model forward
+			walk.sort(RevSort.TOPO, true);
+			walk.sort(RevSort.REVERSE, true);
+		}
+		return walk.iterator();
+	}
+
+	private void detect(GitService gitService, Repository repository, RefactoringHandler handler, Iterator<RevCommit> i) {
+		if (commitJournal != null) {
+			// journaled behind the dispatcher, once the handler is done with the commit
+			handler = new JournalingHandler(handler, commitJournal);
+		}
+		if (handlerBatchSize > 0) {
+			AsyncHandlerDispatcher dispatcher = new AsyncHandlerDispatcher(handler, handlerQueueSize, handlerBatchSize);
+			try {
+				detectCommits(gitService, repository, dispatcher, i);
+			} finally {
+				dispatcher.close();
+			}
+		} else {
+			detectCommits(gitService, repository, handler, i);
+		}
+	}
+
+	private void detectCommits(GitService gitService, Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+		if (analyzesInParallel()) {
+			detectInParallel(gitService, repository, handler, i);
+			return;
+		}
 		int commitsCount = 0;
 		int errorCommitsCount = 0;
 		int refactoringsCount = 0;
@@ -84,13 +353,27 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 		File projectFolder = metadataFolder.getParentFile();
 		String projectName = projectFolder.getName();
 		
+		ProjectModel projectModel = usesRollingProjectModel() ? new ProjectModel() : null;
 		long time = System.currentTimeMillis();
 		while (i.hasNext()) {
 			RevCommit currentCommit = i.next();
 			try {
-				List<Refactoring> refactoringsAtRevision = detectRefactorings(gitService, repository, handler, projectFolder, currentCommit);
+				List<Refactoring> refactoringsAtRevision;
+				if (projectModel != null) {
+					refactoringsAtRevision = detectRefactorings(gitService, repository, projectFolder, currentCommit, projectModel);
+					handler.handle(currentCommit.getId().getName(), refactoringsAtRevision);
+					handler.handle(currentCommit, refactoringsAtRevision);
+				} else {
+					refactoringsAtRevision = detectRefactorings(gitService, repository, handler, projectFolder, currentCommit);
+				}
 				refactoringsCount += refactoringsAtRevision.size();
 				
+			} catch (CommitTimeoutException e) {
+				handleTimeout(handler, currentCommit.getId().getName(), e);
+				errorCommitsCount++;
+			} catch (CancellationException e) {
+				// the handler stopped the analysis, e.g. a closed result stream
+				throw e;
 			} catch (Exception e) {
 				logger.warn(String.format("Ignored revision %s due to error", currentCommit.getId().getName()), e);
 				handler.handleException(currentCommit.getId().getName(),e);
@@ -104,46 +387,600 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 				logger.info(String.format("Processing %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
 			}
 		}
+		if (projectModel != null) {
+			projectModel.release();
+		}
 
 		handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
 		logger.info(String.format("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
+		if (umlClassCache != null) {
+			logger.info(umlClassCache.toString());
+		}
+		if (resultStore != null) {
+			logger.info(resultStore.toString());
+		}
+		if (deltaResultCache != null) {
+			logger.info(deltaResultCache.toString());
+		}
 	}
 
-	protected List<Refactoring> detectRefactorings(GitService gitService, Repository repository, final RefactoringHandler handler, File projectFolder, RevCommit currentCommit) throws Exception {
-		List<Refactoring> refactoringsAtRevision;
+	private void detectInParallel(final GitService gitService, final Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+		int commitsCount = 0;
+		int errorCommitsCount = 0;
+		int refactoringsCount = 0;
+
+		File metadataFolder = repository.getDirectory();
+		final File projectFolder = metadataFolder.getParentFile();
+		String projectName = projectFolder.getName();
+
+		CommitScheduler scheduler = null;
+		if (costAwareScheduling) {
+			scheduler = new CommitScheduler(repository, commitTimingsFile);
+			try {
+				scheduler.load();
+			} catch (IOException e) {
+				logger.warn(String.format("Ignored commit timings %s due to error", commitTimingsFile), e);
+			}
+			try {
+				i = scheduler.schedule(i);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		ExecutorService executor = executorService != null ? executorService : Executors.newFixedThreadPool(numberOfThreads);
+		CompletionService<AnalyzedCommit> completionService = new ExecutorCompletionService<AnalyzedCommit>(executor);
+		// the revision walk is not thread-safe, so commits are pulled on this thread and only a bounded window is in flight
+		Deque<Future<AnalyzedCommit>> pending = new ArrayDeque<Future<AnalyzedCommit>>();
+		int window = 2 * numberOfThreads;
+		long time = System.currentTimeMillis();
+		try {
+			while (i.hasNext() || !pending.isEmpty()) {
+				if (i.hasNext() && pending.size() < window) {
+					final RevCommit currentCommit = i.next();
+					Callable<AnalyzedCommit> task = new Callable<AnalyzedCommit>() {
+						@Override
+						public AnalyzedCommit call() {
+							long startTime = System.currentTimeMillis();
+							resultReused.set(Boolean.FALSE);
+							try {
+								List<Refactoring> refactorings = detectRefactorings(gitService, repository, projectFolder, currentCommit, true);
+								return new AnalyzedCommit(currentCommit, refactorings, System.currentTimeMillis() - startTime, resultReused.get());
+							} catch (Exception e) {
+								return new AnalyzedCommit(currentCommit, e, System.currentTimeMillis() - startTime);
+							}
+						}
+					};
+					pending.add(deliverInCompletionOrder ? completionService.submit(task) : executor.submit(task));
+					continue;
+				}
+				Future<AnalyzedCommit> next = deliverInCompletionOrder ? completionService.take() : pending.peekFirst();
+				pending.remove(next);
+				AnalyzedCommit result = next.get();
+				String commitId = result.commit.getId().getName();
+				// the time taken to reuse a result says nothing about the cost of analyzing the commit
+				if (scheduler != null && !result.reused) {
+					scheduler.record(commitId, result.elapsedTime);
+				}
+				try {
+					if (result.exception != null) {
+						throw result.exception;
+					}
+					handler.handle(commitId, result.refactorings);
+					handler.handle(result.commit, result.refactorings);
+					refactoringsCount += result.refactorings.size();
+				} catch (CommitTimeoutException e) {
+					handleTimeout(handler, commitId, e);
+					errorCommitsCount++;
+				} catch (CancellationException e) {
+					throw e;
+				} catch (Exception e) {
+					logger.warn(String.format("Ignored revision %s due to error", commitId), e);
+					handler.handleException(commitId, e);
+					errorCommitsCount++;
+				}
+
+				commitsCount++;
+				long time2 = System.currentTimeMillis();
+				if ((time2 - time) > 20000) {
+					time = time2;
+					logger.info(String.format("Processing %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (executor != executorService) {
+				executor.shutdownNow();
+			} else {
+				for (Future<AnalyzedCommit> future : pending) {
+					future.cancel(true);
+				}
+			}
+		}
+		if (scheduler != null) {
+			try {
+				scheduler.save();
+			} catch (IOException e) {
+				logger.warn(String.format("Could not save commit timings %s", commitTimingsFile), e);
+			}
+		}
+
+		handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+		logger.info(String.format("Analyzed %s [Commits: %d, Errors: %d, Refactorings: %d]", projectName, commitsCount, errorCommitsCount, refactoringsCount));
+		if (umlClassCache != null) {
+			logger.info(umlClassCache.toString());
+		}
+		if (resultStore != null) {
+			logger.info(resultStore.toString());
+		}
+		if (deltaResultCache != null) {
+			logger.info(deltaResultCache.toString());
+		}
+	}
+
+	private void handleTimeout(RefactoringHandler handler, String commitId, CommitTimeoutException e) {
+		logger.warn(String.format("Ignored revision %s due to timeout during %s after %d ms", commitId, e.getPhase(), e.getElapsedTime()));
+		handler.handleTimeout(commitId, e.getPhase(), e.getElapsedTime());
+	}
+
+	private static class AnalyzedCommit {
+		private final RevCommit commit;
+		private final List<Refactoring> refactorings;
+		private final Exception exception;
+		private final long elapsedTime;
+		private final boolean reused;
+
+		AnalyzedCommit(RevCommit commit, List<Refactoring> refactorings, long elapsedTime, boolean reused) {
+			this.commit = commit;
+			this.refactorings = refactorings;
+			this.exception = null;
+			this.elapsedTime = elapsedTime;
+			this.reused = reused;
+		}
+
+		AnalyzedCommit(RevCommit commit, Exception exception, long elapsedTime) {
+			this.commit = commit;
+			this.refactorings = Collections.emptyList();
+			this.exception = exception;
+			this.elapsedTime = elapsedTime;
+			this.reused = false;
+		}
+	}
+
+	/**
+	 * The model of the project at the last analyzed commit, rolled over to the next commit. The cached models of its
+	 * files stay leased while they are part of it.
+	 */
+	private static class ProjectModel {
+		private UMLModel model;
+		private String commitId;
+		private UMLClassCache.Lease lease;
+
+		private void release() {
+			model = null;
+			commitId = null;
+			if (lease != null) {
+				lease.release();
+			}
+		}
+	}
+
+	private List<Refactoring> detectRefactorings(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit, ProjectModel projectModel) throws Exception {
+		String commitId = currentCommit.getId().getName();
+		String configurationKey = configurationKey(false, true);
+		List<Refactoring> refactoringsAtRevision = loadStoredRefactorings(commitId, configurationKey);
+		if (refactoringsAtRevision == null) {
+			// the project model is not rolled over stored commits, so it is rebuilt at the next analyzed commit
+			refactoringsAtRevision = analyze(gitService, repository, projectFolder, currentCommit, projectModel);
+			storeRefactorings(commitId, configurationKey, refactoringsAtRevision);
+		}
+		return refactoringsAtRevision;
+	}
+
+	private List<Refactoring> analyze(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit, ProjectModel projectModel) throws Exception {
+		if (currentCommit.getParentCount() == 0) {
+			return Collections.emptyList();
+		}
 		String commitId = currentCommit.getId().getName();
 		List<String> filesBefore = new ArrayList<String>();
 		List<String> filesCurrent = new ArrayList<String>();
 		Map<String, String> renamedFilesHint = new HashMap<String, String>();
 		gitService.fileTreeDiff(repository, currentCommit, filesBefore, filesCurrent, renamedFilesHint);
-		// If no java files changed, there is no refactoring. Also, if there are
-		// only ADD's or only REMOVE's there is no refactoring
-		if (!filesBefore.isEmpty() && !filesCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
-			// Checkout and build model for parent commit
-			String parentCommit = currentCommit.getParent(0).getName();
-			gitService.checkout(repository, parentCommit);
-			UMLModel parentUMLModel = createModel(projectFolder, filesBefore);
-			
-			// Checkout and build model for current commit
-			gitService.checkout(repository, commitId);
-			UMLModel currentUMLModel = createModel(projectFolder, filesCurrent);
-			
-			// Diff between currentModel e parentModel
-			refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
-			refactoringsAtRevision = filter(refactoringsAtRevision);
-			
-		} else {
-			//logger.info(String.format("Ignored revision %s with no changes in java files", commitId));
-			refactoringsAtRevision = Collections.emptyList();
+		RevCommit parentCommit = currentCommit.getParent(0);
+		if (umlClassCache != null && projectModel.lease == null) {
+			projectModel.lease = umlClassCache.lease();
+		}
+		UMLClassCache.Lease lease = projectModel.lease;
+		UMLModel currentUMLModel = null;
+		Map<String, ObjectId> parentBlobIds = null;
+		try {
+			if (!parentCommit.getName().equals(projectModel.commitId)) {
+				projectModel.release();
+				Map<String, ObjectId> blobIds = new LinkedHashMap<String, ObjectId>();
+				gitService.populateJavaBlobIds(repository, parentCommit, blobIds);
+				projectModel.model = createModel(gitService, repository, projectFolder, blobIds, Collections.<String>emptySet(), lease);
+				projectModel.commitId = parentCommit.getName();
+			}
+			// the time budget starts after a rebuild of the project model, which is not due to this commit
+			startDeadline();
+			// The current model is needed even for commits that only add or remove files, to keep the project model up to date
+			UMLModel parentUMLModel = projectModel.model.getSubModel(filesBefore);
+			UMLModel currentModel = createModel(gitService, repository, projectFolder, currentCommit, filesCurrent, parentDirectories(filesBefore), lease);
+			if (lease != null) {
+				parentBlobIds = new LinkedHashMap<String, ObjectId>();
+				gitService.populateBlobIds(repository, parentCommit, filesBefore, parentBlobIds);
+			}
+			projectModel.model.removeSourceFiles(new HashSet<String>(filesBefore));
+			projectModel.model.addModel(currentModel);
+			projectModel.commitId = commitId;
+			currentUMLModel = currentModel;
+	
+			if (!filesBefore.isEmpty() && !filesCurrent.isEmpty()) {
+				UMLModelDiff modelDiff = parentUMLModel.diff(currentUMLModel, renamedFilesHint);
+				modelDiff.setNextProjectModel(projectModel.model);
+				return filter(modelDiff.getRefactorings());
+			}
+			return Collections.emptyList();
+		} finally {
+			Deadline.clear();
+			if (currentUMLModel != null) {
+				// the files of the current commit stay in the project model and are diffed again at the next commit
+				currentUMLModel.clearMappingState();
+				if (parentBlobIds != null) {
+					// while the parent versions of the changed files left it
+					for (Map.Entry<String, ObjectId> blob : parentBlobIds.entrySet()) {
+						lease.release(blob.getKey(), blob.getValue());
+					}
+				}
+			}
+		}
+	}
+
+	private void startDeadline() {
+		if (commitTimeout > 0) {
+			Deadline.start(commitTimeout);
 		}
+	}
+
+	protected List<Refactoring> detectRefactorings(GitService gitService, Repository repository, final RefactoringHandler handler, File projectFolder, RevCommit currentCommit) throws Exception {
+		List<Refactoring> refactoringsAtRevision = detectRefactorings(gitService, repository, projectFolder, currentCommit, checkoutFree);
+		String commitId = currentCommit.getId().getName();
 		handler.handle(commitId, refactoringsAtRevision);
 		handler.handle(currentCommit, refactoringsAtRevision);
 
 		return refactoringsAtRevision;
 	}
 
+	private List<Refactoring> detectRefactorings(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit, boolean checkoutFree) throws Exception {
+		String commitId = currentCommit.getId().getName();
+		String configurationKey = configurationKey(checkoutFree && moduleThreads > 0, false);
+		List<Refactoring> refactoringsAtRevision = loadStoredRefactorings(commitId, configurationKey);
+		if (refactoringsAtRevision == null) {
+			refactoringsAtRevision = analyze(gitService, repository, projectFolder, currentCommit, checkoutFree);
+			storeRefactorings(commitId, configurationKey, refactoringsAtRevision);
+		}
+		return refactoringsAtRevision;
+	}
+
+	private List<Refactoring> loadStoredRefactorings(String commitId, String configurationKey) {
+		if (resultStore == null) {
+			return null;
+		}
+		try {
+			List<Refactoring> refactorings = resultStore.load(commitId, configurationKey);
+			if (refactorings != null) {
+				resultReused.set(Boolean.TRUE);
+			}
+			return refactorings;
+		} catch (IOException e) {
+			logger.warn(String.format("Could not load the stored refactorings of revision %s", commitId), e);
+			return null;
+		}
+	}
+
+	private void storeRefactorings(String commitId, String configurationKey, List<Refactoring> refactorings) {
+		if (resultStore == null) {
+			return;
+		}
+		try {
+			resultStore.store(commitId, configurationKey, refactorings);
+		} catch (IOException e) {
+			logger.warn(String.format("Could not store the refactorings of revision %s", commitId), e);
+		}
+	}
+
+	/**
+	 * @return A key of the configuration id, of the refactoring types to consider and of the way the commit is
+	 * analyzed, usable as a file name.
+	 */
+	private String configurationKey(boolean partitioned, boolean rolling) {
+		StringBuilder types = new StringBuilder();
+		for (RefactoringType type : RefactoringType.values()) {
+			if (refactoringTypesToConsider == null || refactoringTypesToConsider.contains(type)) {
+				types.append(type.name()).append(',');
+			}
+		}
+		String key = getConfigId().replaceAll("[^A-Za-z0-9._-]", "_") + "-" + String.format("%08x", types.toString().hashCode());
+		if (partitioned) {
+			// partitioned commits may have fewer refactorings
+			key += "-modules";
+		}
+		if (rolling) {
+			// and commits diffed against the rolling project model may have others
+			key += "-rolling";
+		}
+		return key;
+	}
+
+	private List<Refactoring> analyze(GitService gitService, Repository repository, File projectFolder, RevCommit currentCommit, boolean checkoutFree) throws Exception {
+		startDeadline();
+		try {
+			List<Refactoring> refactoringsAtRevision;
+			String commitId = currentCommit.getId().getName();
+			List<String> filesBefore = new ArrayList<String>();
+			List<String> filesCurrent = new ArrayList<String>();
+			Map<String, String> renamedFilesHint = new HashMap<String, String>();
+			gitService.fileTreeDiff(repository, currentCommit, filesBefore, filesCurrent, renamedFilesHint);
+			// If no java files changed, there is no refactoring. Also, if there are
+			// only ADD's or only REMOVE's there is no refactoring
+			if (!filesBefore.isEmpty() && !filesCurrent.isEmpty() && currentCommit.getParentCount() > 0) {
+				UMLModel parentUMLModel;
+				UMLModel currentUMLModel;
+				UMLClassCache.Lease lease = null;
+				String fingerprint = null;
+				if (checkoutFree) {
+					// Build models from the blobs of parent and current commit
+					RevCommit parentCommit = currentCommit.getParent(0);
+					Map<String, ObjectId> blobIdsBefore = new LinkedHashMap<String, ObjectId>();
+					gitService.populateBlobIds(repository, parentCommit, filesBefore, blobIdsBefore);
+					Map<String, ObjectId> blobIdsCurrent = new LinkedHashMap<String, ObjectId>();
+					gitService.populateBlobIds(repository, currentCommit, filesCurrent, blobIdsCurrent);
+					Set<String> repositoryDirectories = new LinkedHashSet<String>();
+					gitService.populateDirectories(repository, currentCommit, parentDirectories(filesBefore), repositoryDirectories);
+					ModulePartition partition = null;
+					if (moduleThreads > 0) {
+						Set<String> files = new LinkedHashSet<String>(filesBefore);
+						files.addAll(filesCurrent);
+						partition = ModulePartition.detect(gitService, repository, parentCommit, currentCommit, files);
+					}
+					if (deltaResultCache != null) {
+						fingerprint = DeltaResultCache.fingerprint(configurationKey(partition != null, false), blobIdsBefore, blobIdsCurrent,
+								renamedFilesHint, repositoryDirectories, partition != null ? partition.getModuleRoots() : null);
+						List<Refactoring> reusedRefactorings = deltaResultCache.get(fingerprint);
+						if (reusedRefactorings != null) {
+							resultReused.set(Boolean.TRUE);
+							return reusedRefactorings;
+						}
+					}
+					if (partition != null) {
+						refactoringsAtRevision = filter(analyzeModules(gitService, repository, projectFolder, partition, blobIdsBefore, blobIdsCurrent, renamedFilesHint, repositoryDirectories));
+						if (fingerprint != null) {
+							deltaResultCache.put(fingerprint, refactoringsAtRevision);
+						}
+						return refactoringsAtRevision;
+					}
+					lease = umlClassCache != null ? umlClassCache.lease() : null;
+					try {
+						ModelBuild parentModelBuild = startModel(gitService, repository, projectFolder, blobIdsBefore, new LinkedHashSet<String>(), lease);
+						ModelBuild currentModelBuild = startModel(gitService, repository, projectFolder, blobIdsCurrent, repositoryDirectories, lease);
+						parentUMLModel = parentModelBuild.get();
+						currentUMLModel = currentModelBuild.get();
+					} catch (Exception e) {
+						if (lease != null) {
+							lease.release();
+						}
+						throw e;
+					}
+				} else {
+					// Checkout and build model for parent commit
+					String parentCommit = currentCommit.getParent(0).getName();
+					gitService.checkout(repository, parentCommit);
+					parentUMLModel = createModel(projectFolder, filesBefore);
+				
+					// Checkout and build model for current commit
+					gitService.checkout(repository, commitId);
+					currentUMLModel = createModel(projectFolder, filesCurrent);
+				}
+			
+				// Diff between currentModel e parentModel
+				try {
+					refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
+				} finally {
+					if (lease != null) {
+						lease.release();
+					}
+				}
+				refactoringsAtRevision = filter(refactoringsAtRevision);
+				if (fingerprint != null) {
+					deltaResultCache.put(fingerprint, refactoringsAtRevision);
+				}
+			
+			} else {
+				//logger.info(String.format("Ignored revision %s with no changes in java files", commitId));
+				refactoringsAtRevision = Collections.emptyList();
+			}
+			return refactoringsAtRevision;
+		} finally {
+			Deadline.clear();
+		}
+	}
+
+	/**
+	 * Build and diff the models of each module, then diff the classes that may have moved across modules.
+	 */
+	private List<Refactoring> analyzeModules(final GitService gitService, final Repository repository, final File projectFolder, ModulePartition partition,
+			Map<String, ObjectId> blobIdsBefore, Map<String, ObjectId> blobIdsCurrent, final Map<String, String> renamedFilesHint, final Set<String> repositoryDirectories) throws Exception {
+		final Set<String> movedFilesBefore = new LinkedHashSet<String>();
+		final Set<String> movedFilesCurrent = new LinkedHashSet<String>();
+		partition.findCrossModuleMoves(blobIdsBefore.keySet(), blobIdsCurrent.keySet(), renamedFilesHint, movedFilesBefore, movedFilesCurrent);
+		Map<String, Map<String, ObjectId>> modulesBefore = partition.partition(blobIdsBefore);
+		Map<String, Map<String, ObjectId>> modulesCurrent = partition.partition(blobIdsCurrent);
+		Set<String> modules = new LinkedHashSet<String>(modulesBefore.keySet());
+		modules.addAll(modulesCurrent.keySet());
+		List<Callable<ModuleDiff>> tasks = new ArrayList<Callable<ModuleDiff>>();
+		for (String module : modules) {
+			Map<String, ObjectId> moduleBlobIdsBefore = modulesBefore.containsKey(module) ? modulesBefore.get(module) : Collections.<String, ObjectId>emptyMap();
+			Map<String, ObjectId> moduleBlobIdsCurrent = modulesCurrent.containsKey(module) ? modulesCurrent.get(module) : Collections.<String, ObjectId>emptyMap();
+			final boolean diff = !moduleBlobIdsBefore.isEmpty() && !moduleBlobIdsCurrent.isEmpty();
+			// a module changed on one side only is only parsed for the classes that may have moved
+			final Map<String, ObjectId> blobIdsToParseBefore = diff ? moduleBlobIdsBefore : retain(moduleBlobIdsBefore, movedFilesBefore);
+			final Map<String, ObjectId> blobIdsToParseCurrent = diff ? moduleBlobIdsCurrent : retain(moduleBlobIdsCurrent, movedFilesCurrent);
+			if (blobIdsToParseBefore.isEmpty() && blobIdsToParseCurrent.isEmpty()) {
+				continue;
+			}
+			tasks.add(new Callable<ModuleDiff>() {
+				@Override
+				public ModuleDiff call() throws Exception {
+					UMLClassCache.Lease lease = umlClassCache != null ? umlClassCache.lease() : null;
+					try {
+						ModelBuild parentModelBuild = startModel(gitService, repository, projectFolder, blobIdsToParseBefore, new LinkedHashSet<String>(), lease);
+						ModelBuild currentModelBuild = startModel(gitService, repository, projectFolder, blobIdsToParseCurrent, repositoryDirectories, lease);
+						UMLModel parentUMLModel = parentModelBuild.get();
+						UMLModel currentUMLModel = currentModelBuild.get();
+						List<Refactoring> refactorings = diff ?
+								parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings() : Collections.<Refactoring>emptyList();
+						return new ModuleDiff(parentUMLModel, currentUMLModel, refactorings, lease);
+					} catch (Exception e) {
+						if (lease != null) {
+							lease.release();
+						}
+						throw e;
+					}
+				}
+			});
+		}
+		List<ModuleDiff> moduleDiffs = new ArrayList<ModuleDiff>();
+		try {
+			invokeAll(tasks, moduleDiffs);
+			List<Refactoring> refactorings = new ArrayList<Refactoring>();
+			for (ModuleDiff moduleDiff : moduleDiffs) {
+				refactorings.addAll(moduleDiff.refactorings);
+			}
+			if (!movedFilesBefore.isEmpty()) {
+				List<String> filesBefore = new ArrayList<String>(movedFilesBefore);
+				List<String> filesCurrent = new ArrayList<String>(movedFilesCurrent);
+				UMLModel parentUMLModel = new UMLModel(projectFolder.getPath(), new LinkedHashSet<String>());
+				UMLModel currentUMLModel = new UMLModel(projectFolder.getPath(), repositoryDirectories);
+				for (ModuleDiff moduleDiff : moduleDiffs) {
+					parentUMLModel.addModel(moduleDiff.parentModel.getSubModel(filesBefore));
+					currentUMLModel.addModel(moduleDiff.currentModel.getSubModel(filesCurrent));
+				}
+				refactorings.addAll(parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings());
+			}
+			return refactorings;
+		} finally {
+			// the models are leased until the classes moved across modules are diffed
+			for (ModuleDiff moduleDiff : moduleDiffs) {
+				if (moduleDiff.lease != null) {
+					moduleDiff.lease.release();
+				}
+			}
+		}
+	}
+
+	private static Map<String, ObjectId> retain(Map<String, ObjectId> blobIds, Set<String> files) {
+		Map<String, ObjectId> retainedBlobIds = new LinkedHashMap<String, ObjectId>();
+		for (Map.Entry<String, ObjectId> blob : blobIds.entrySet()) {
+			if (files.contains(blob.getKey())) {
+				retainedBlobIds.put(blob.getKey(), blob.getValue());
+			}
+		}
+		return retainedBlobIds;
+	}
+
+	/**
+	 * Run the tasks of the analysis of a commit on the module threads, within the time budget of the commit.
+	 * The results of the tasks that completed are added to {@code results} even if another task failed.
+	 */
+	private <T> void invokeAll(List<Callable<T>> tasks, List<T> results) throws Exception {
+		if (moduleThreads == 1 || tasks.size() <= 1) {
+			for (Callable<T> task : tasks) {
+				results.add(task.call());
+			}
+			return;
+		}
+		ExecutorService executor = moduleExecutor();
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			futures.add(executor.submit(Deadline.propagate(task)));
+		}
+		Exception failure = null;
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : new RuntimeException(e.getCause());
+				}
+			} catch (InterruptedException e) {
+				for (Future<T> pendingFuture : futures) {
+					pendingFuture.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private synchronized ExecutorService moduleExecutor() {
+		if (moduleExecutor == null) {
+			moduleExecutor = newDaemonThreadPool(moduleThreads, "RefactoringMiner-module-");
+		}
+		return moduleExecutor;
+	}
+
+	private synchronized ExecutorService parserExecutor() {
+		if (parserExecutor == null) {
+			parserExecutor = newDaemonThreadPool(parserThreads, "RefactoringMiner-parser-");
+		}
+		return parserExecutor;
+	}
+
+	private static ExecutorService newDaemonThreadPool(int numberOfThreads, final String namePrefix) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// the miner has no life cycle, so idle threads stop by themselves
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static class ModuleDiff {
+		private final UMLModel parentModel;
+		private final UMLModel currentModel;
+		private final List<Refactoring> refactorings;
+		private final UMLClassCache.Lease lease;
+
+		private ModuleDiff(UMLModel parentModel, UMLModel currentModel, List<Refactoring> refactorings, UMLClassCache.Lease lease) {
+			this.parentModel = parentModel;
+			this.currentModel = currentModel;
+			this.refactorings = refactorings;
+			this.lease = lease;
+		}
+	}
+
 	protected List<Refactoring> detectRefactorings(final RefactoringHandler handler, File projectFolder, String cloneURL, String currentCommitId) {
-		List<Refactoring> refactoringsAtRevision = Collections.emptyList();
+		String configurationKey = configurationKey(false, false);
+		List<Refactoring> refactoringsAtRevision = loadStoredRefactorings(currentCommitId, configurationKey);
+		if (refactoringsAtRevision != null) {
+			handler.handle(currentCommitId, refactoringsAtRevision);
+			return refactoringsAtRevision;
+		}
+		refactoringsAtRevision = Collections.emptyList();
 		try {
 			List<String> filesBefore = new ArrayList<String>();
 			List<String> filesCurrent = new ArrayList<String>();
@@ -163,6 +1000,7 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 				// Diff between currentModel e parentModel
 				refactoringsAtRevision = parentUMLModel.diff(currentUMLModel, renamedFilesHint).getRefactorings();
 				refactoringsAtRevision = filter(refactoringsAtRevision);
+				storeRefactorings(currentCommitId, configurationKey, refactoringsAtRevision);
 			}
 			else {
 				logger.warn(String.format("Folder %s not found", currentFolder.getPath()));
@@ -263,15 +1101,15 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 	
 	@Override
 	public void detectAll(Repository repository, String branch, final RefactoringHandler handler) throws Exception {
-		GitService gitService = new GitServiceImpl() {
+		GitService gitService = configure(new GitServiceImpl() {
 			@Override
 			public boolean isCommitAnalyzed(String sha1) {
 				return handler.skipCommit(sha1);
 			}
-		};
+		});
 		RevWalk walk = gitService.createAllRevsWalk(repository, branch);
 		try {
-			detect(gitService, repository, handler, walk.iterator());
+			detect(gitService, repository, handler, iterator(walk));
 		} finally {
 			walk.dispose();
 		}
@@ -279,33 +1117,146 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 
 	@Override
 	public void fetchAndDetectNew(Repository repository, final RefactoringHandler handler) throws Exception {
-		GitService gitService = new GitServiceImpl() {
+		GitService gitService = configure(new GitServiceImpl() {
 			@Override
 			public boolean isCommitAnalyzed(String sha1) {
 				return handler.skipCommit(sha1);
 			}
-		};
+		});
 		RevWalk walk = gitService.fetchAndCreateNewRevsWalk(repository);
 		try {
-			detect(gitService, repository, handler, walk.iterator());
+			detect(gitService, repository, handler, iterator(walk));
 		} finally {
 			walk.dispose();
 		}
 	}
 
 	protected UMLModel createModel(File projectFolder, List<String> files) throws Exception {
+		if (parserThreads > 1) {
+			return new UMLModelASTReader(projectFolder, files, parserExecutor()).getUmlModel();
+		}
 		return new UMLModelASTReader(projectFolder, files).getUmlModel();
 	}
 
+	private UMLModel createModel(GitService gitService, Repository repository, File projectFolder, RevCommit commit, List<String> files, Set<String> directoriesToCheck, UMLClassCache.Lease lease) throws Exception {
+		Map<String, ObjectId> blobIds = new LinkedHashMap<String, ObjectId>();
+		gitService.populateBlobIds(repository, commit, files, blobIds);
+		Set<String> repositoryDirectories = new LinkedHashSet<String>();
+		gitService.populateDirectories(repository, commit, directoriesToCheck, repositoryDirectories);
+		return createModel(gitService, repository, projectFolder, blobIds, repositoryDirectories, lease);
+	}
+
+	private UMLModel createModel(GitService gitService, Repository repository, File projectFolder, Map<String, ObjectId> blobIds, Set<String> repositoryDirectories, UMLClassCache.Lease lease) throws Exception {
+		return startModel(gitService, repository, projectFolder, blobIds, repositoryDirectories, lease).get();
+	}
+
+	/**
+	 * Read the files of a model and start parsing them on the parser threads, if any.
+	 */
+	private ModelBuild startModel(GitService gitService, Repository repository, File projectFolder, Map<String, ObjectId> blobIds, Set<String> repositoryDirectories, UMLClassCache.Lease lease) throws Exception {
+		Map<String, UMLModel> fileModels = new HashMap<String, UMLModel>();
+		Map<String, ObjectId> blobIdsToParse = blobIds;
+		if (lease != null) {
+			blobIdsToParse = new LinkedHashMap<String, ObjectId>();
+			for (Map.Entry<String, ObjectId> blob : blobIds.entrySet()) {
+				UMLModel fileModel = lease.get(blob.getKey(), blob.getValue());
+				if (fileModel != null) {
+					fileModels.put(blob.getKey(), fileModel);
+				} else {
+					blobIdsToParse.put(blob.getKey(), blob.getValue());
+				}
+			}
+		}
+		Map<String, String> fileContents = new LinkedHashMap<String, String>();
+		gitService.populateFileContents(repository, blobIdsToParse, fileContents);
+		return new ModelBuild(projectFolder, blobIds, repositoryDirectories, lease, fileModels, blobIdsToParse, fileContents);
+	}
+
+	/**
+	 * A model whose files are read and may be parsed on the parser threads.
+	 */
+	private class ModelBuild {
+		private final File projectFolder;
+		private final Map<String, ObjectId> blobIds;
+		private final Set<String> repositoryDirectories;
+		private final UMLClassCache.Lease lease;
+		private final Map<String, UMLModel> fileModels;
+		private final Map<String, ObjectId> blobIdsToParse;
+		private final Map<String, String> fileContents;
+		private final UMLModelASTReader.ParsedFiles parsedFiles;
+
+		private ModelBuild(File projectFolder, Map<String, ObjectId> blobIds, Set<String> repositoryDirectories, UMLClassCache.Lease lease,
+				Map<String, UMLModel> fileModels, Map<String, ObjectId> blobIdsToParse, Map<String, String> fileContents) {
+			this.projectFolder = projectFolder;
+			this.blobIds = blobIds;
+			this.repositoryDirectories = repositoryDirectories;
+			this.lease = lease;
+			this.fileModels = fileModels;
+			this.blobIdsToParse = blobIdsToParse;
+			this.fileContents = fileContents;
+			this.parsedFiles = parserThreads > 1 && fileContents.size() > 1 ?
+					UMLModelASTReader.parseInParallel(projectFolder, fileContents, parserExecutor()) : null;
+		}
+
+		/**
+		 * Wait for the files to be parsed and merge their models in the order they would have been parsed in.
+		 */
+		private UMLModel get() {
+			if (lease == null && parsedFiles == null) {
+				return new UMLModelASTReader(projectFolder, fileContents, repositoryDirectories).getUmlModel();
+			}
+			Map<String, UMLModel> parsedFileModels;
+			if (parsedFiles != null) {
+				parsedFileModels = parsedFiles.get();
+			} else {
+				parsedFileModels = new LinkedHashMap<String, UMLModel>();
+				for (Map.Entry<String, String> fileContent : fileContents.entrySet()) {
+					String filePath = fileContent.getKey();
+					parsedFileModels.put(filePath, new UMLModelASTReader(projectFolder, Collections.singletonMap(filePath, fileContent.getValue()), repositoryDirectories).getUmlModel());
+				}
+			}
+			for (Map.Entry<String, UMLModel> parsedFileModel : parsedFileModels.entrySet()) {
+				String filePath = parsedFileModel.getKey();
+				if (lease != null) {
+					lease.put(filePath, blobIdsToParse.get(filePath), parsedFileModel.getValue(), fileContents.get(filePath).length());
+				}
+				fileModels.put(filePath, parsedFileModel.getValue());
+			}
+			UMLModel model = new UMLModel(projectFolder.getPath(), repositoryDirectories);
+			for (String filePath : blobIds.keySet()) {
+				model.addModel(fileModels.get(filePath));
+			}
+			return model;
+		}
+	}
+
+	private static Set<String> parentDirectories(List<String> files) {
+		Set<String> directories = new LinkedHashSet<String>();
+		for (String file : files) {
+			if (file.contains("/")) {
+				directories.add(file.substring(0, file.lastIndexOf("/")));
+			}
+		}
+		return directories;
+	}
+
 	@Override
 	public void detectAtCommit(Repository repository, String cloneURL, String commitId, RefactoringHandler handler) {
 		File metadataFolder = repository.getDirectory();
 		File projectFolder = metadataFolder.getParentFile();
-		GitService gitService = new GitServiceImpl();
+		GitService gitService = configure(new GitServiceImpl());
+		RefactoringHandler gitHubHandler = handler;
+		if (commitJournal != null) {
+			gitHubHandler = new JournalingHandler(handler, commitJournal, true);
+			handler = new JournalingHandler(handler, commitJournal);
+		}
 		RevWalk walk = new RevWalk(repository);
 		try {
 			RevCommit commit = walk.parseCommit(repository.resolve(commitId));
-			if (commit.getParentCount() > 0) {
+			if (commitJournal != null && commitJournal.contains(commit)) {
+				logger.info(String.format("Skipped revision %s recorded in the commit journal", commitId));
+			}
+			else if (commit.getParentCount() > 0) {
 				walk.parseCommit(commit.getParent(0));
 				this.detectRefactorings(gitService, repository, handler, projectFolder, commit);
 			}
@@ -313,7 +1264,14 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 				logger.warn(String.format("Ignored revision %s because it has no parent", commitId));
 			}
 		} catch (MissingObjectException moe) {
-			this.detectRefactorings(handler, projectFolder, cloneURL, commitId);
+			if (commitJournal != null && ObjectId.isId(commitId) && commitJournal.contains(ObjectId.fromString(commitId))) {
+				logger.info(String.format("Skipped revision %s recorded in the commit journal", commitId));
+			}
+			else {
+				this.detectRefactorings(gitHubHandler, projectFolder, cloneURL, commitId);
+			}
+		} catch (CommitTimeoutException e) {
+			handleTimeout(handler, commitId, e);
 		} catch (Exception e) {
 			logger.warn(String.format("Ignored revision %s due to error", commitId), e);
 			handler.handleException(commitId, e);
@@ -331,17 +1289,17 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 	@Override
 	public void detectBetweenTags(Repository repository, String startTag, String endTag, RefactoringHandler handler)
 			throws Exception {
-		GitService gitService = new GitServiceImpl() {
+		GitService gitService = configure(new GitServiceImpl() {
 			@Override
 			public boolean isCommitAnalyzed(String sha1) {
 				return handler.skipCommit(sha1);
 			}
-		};
+		});
 		
 		RevWalk walk = gitService.createRevsWalkBetweenTags(repository, startTag, endTag);
 
 		try {
-			detect(gitService, repository, handler, walk.iterator());
+			detect(gitService, repository, handler, iterator(walk));
 		} finally {
 			walk.dispose();
 		}
@@ -350,19 +1308,54 @@ public class GitHistoryRefactoringMinerImpl implements GitHistoryRefactoringMine
 	@Override
 	public void detectBetweenCommits(Repository repository, String startCommitId, String endCommitId,
 			RefactoringHandler handler) throws Exception {
-		GitService gitService = new GitServiceImpl() {
+		GitService gitService = configure(new GitServiceImpl() {
 			@Override
 			public boolean isCommitAnalyzed(String sha1) {
 				return handler.skipCommit(sha1);
 			}
-		};
+		});
 		
 		RevWalk walk = gitService.createRevsWalkBetweenCommits(repository, startCommitId, endCommitId);
 
 		try {
-			detect(gitService, repository, handler, walk.iterator());
+			detect(gitService, repository, handler, iterator(walk));
 		} finally {
 			walk.dispose();
 		}
 	}
+
+	@Override
+	public CommitResultStream streamAll(final Repository repository, final String branch, int bufferSize) {
+		return start(new BlockingCommitResultStream(bufferSize) {
+			@Override
+			protected void mine(RefactoringHandler handler) throws Exception {
+				detectAll(repository, branch, handler);
+			}
+		});
+	}
+
+	@Override
+	public CommitResultStream streamBetweenTags(final Repository repository, final String startTag, final String endTag, int bufferSize) {
+		return start(new BlockingCommitResultStream(bufferSize) {
+			@Override
+			protected void mine(RefactoringHandler handler) throws Exception {
+				detectBetweenTags(repository, startTag, endTag, handler);
+			}
+		});
+	}
+
+	@Override
+	public CommitResultStream streamBetweenCommits(final Repository repository, final String startCommitId, final String endCommitId, int bufferSize) {
+		return start(new BlockingCommitResultStream(bufferSize) {
+			@Override
+			protected void mine(RefactoringHandler handler) throws Exception {
+				detectBetweenCommits(repository, startCommitId, endCommitId, handler);
+			}
+		});
+	}
+
+	private CommitResultStream start(BlockingCommitResultStream stream) {
+		stream.start();
+		return stream;
+	}
 }
@@ -0,0 +1,106 @@
+package org.refactoringminer.rm1;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.CommitResult;
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringHandler;
+import org.refactoringminer.util.CommitJournal;
+
+/**
+ * Handler that adds each commit to a {@link CommitJournal} once another handler has handled its result, so that a
+ * commit is only skipped by a resumed run if its result was delivered. The commits that failed or timed out are not
+ * journaled, so a resumed run analyzes them again.
+ *
+ * The result of a commit analyzed from a local repository is journaled when it is handled as a {@link RevCommit}.
+ * The analysis with the GitHub API only hands the commit id over, so its handler journals the id instead, unless
+ * the analysis failed.
+ */
+class JournalingHandler extends RefactoringHandler {
+
+	private final RefactoringHandler delegate;
+	private final CommitJournal journal;
+	private final boolean journalsCommitIds;
+	private volatile String failedCommitId = null;
+
+	JournalingHandler(RefactoringHandler delegate, CommitJournal journal) {
+		this(delegate, journal, false);
+	}
+
+	JournalingHandler(RefactoringHandler delegate, CommitJournal journal, boolean journalsCommitIds) {
+		this.delegate = delegate;
+		this.journal = journal;
+		this.journalsCommitIds = journalsCommitIds;
+	}
+
+	private void journal(String commitId) {
+		// the id given to detectAtCommit may be abbreviated
+		if (ObjectId.isId(commitId)) {
+			journal(ObjectId.fromString(commitId));
+		}
+	}
+
+	private void journal(AnyObjectId commitId) {
+		try {
+			journal.add(commitId);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public boolean skipCommit(String commitId) {
+		return delegate.skipCommit(commitId);
+	}
+
+	@Override
+	public void handle(String commitId, List<Refactoring> refactorings) {
+		delegate.handle(commitId, refactorings);
+		if (journalsCommitIds && !commitId.equals(failedCommitId)) {
+			journal(commitId);
+		}
+	}
+
+	@Override
+	public void handle(RevCommit commitData, List<Refactoring> refactorings) {
+		delegate.handle(commitData, refactorings);
+		journal(commitData);
+	}
+
+	@Override
+	public void handleException(String commitId, Exception e) {
+		failedCommitId = commitId;
+		delegate.handleException(commitId, e);
+	}
+
+	@Override
+	public void handleTimeout(String commitId, AnalysisPhase phase, long elapsedTime) {
+		failedCommitId = commitId;
+		delegate.handleTimeout(commitId, phase, elapsedTime);
+	}
+
+	@Override
+	public void handleBatch(List<CommitResult> results) {
+		delegate.handleBatch(results);
+		for (CommitResult result : results) {
+			if (result.isSuccessful()) {
+				journal(result.getCommitId());
+			}
+		}
+	}
+
+	@Override
+	public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+		delegate.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+		try {
+			journal.sync();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
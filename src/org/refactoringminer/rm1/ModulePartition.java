@@ -0,0 +1,136 @@
+package org.refactoringminer.rm1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.refactoringminer.api.GitService;
+
+/**
+ * The modules of the files changed by a commit. The module of a file is the deepest directory above it with a build
+ * file (pom.xml, build.gradle or build.gradle.kts) before or after the commit, or the repository root.
+ */
+class ModulePartition {
+
+	private static final String[] BUILD_FILES = {"pom.xml", "build.gradle", "build.gradle.kts"};
+	private static final String ROOT = "";
+
+	private final Set<String> moduleRoots;
+
+	private ModulePartition(Set<String> moduleRoots) {
+		this.moduleRoots = moduleRoots;
+	}
+
+	/**
+	 * Find the modules of the given files, looking up only the build files of the directories above them.
+	 */
+	static ModulePartition detect(GitService gitService, Repository repository, RevCommit parentCommit, RevCommit currentCommit, Collection<String> files) throws Exception {
+		Set<String> directories = new LinkedHashSet<String>();
+		for (String file : files) {
+			for (int i = file.lastIndexOf('/'); i > 0; i = file.lastIndexOf('/', i - 1)) {
+				if (!directories.add(file.substring(0, i))) {
+					// the directories above were added with another file
+					break;
+				}
+			}
+		}
+		List<String> buildFiles = new ArrayList<String>();
+		for (String directory : directories) {
+			for (String buildFile : BUILD_FILES) {
+				buildFiles.add(directory + "/" + buildFile);
+			}
+		}
+		Map<String, ObjectId> blobIds = new HashMap<String, ObjectId>();
+		gitService.populateBlobIds(repository, parentCommit, buildFiles, blobIds);
+		gitService.populateBlobIds(repository, currentCommit, buildFiles, blobIds);
+		Set<String> moduleRoots = new TreeSet<String>();
+		for (String buildFile : blobIds.keySet()) {
+			moduleRoots.add(buildFile.substring(0, buildFile.lastIndexOf('/')));
+		}
+		return new ModulePartition(moduleRoots);
+	}
+
+	Set<String> getModuleRoots() {
+		return Collections.unmodifiableSet(moduleRoots);
+	}
+
+	String moduleOf(String file) {
+		for (int i = file.lastIndexOf('/'); i > 0; i = file.lastIndexOf('/', i - 1)) {
+			String directory = file.substring(0, i);
+			if (moduleRoots.contains(directory)) {
+				return directory;
+			}
+		}
+		return ROOT;
+	}
+
+	/**
+	 * @return The blobs of each module, in the order of the files.
+	 */
+	Map<String, Map<String, ObjectId>> partition(Map<String, ObjectId> blobIds) {
+		Map<String, Map<String, ObjectId>> modules = new LinkedHashMap<String, Map<String, ObjectId>>();
+		for (Map.Entry<String, ObjectId> blob : blobIds.entrySet()) {
+			String module = moduleOf(blob.getKey());
+			Map<String, ObjectId> moduleBlobIds = modules.get(module);
+			if (moduleBlobIds == null) {
+				moduleBlobIds = new LinkedHashMap<String, ObjectId>();
+				modules.put(module, moduleBlobIds);
+			}
+			moduleBlobIds.put(blob.getKey(), blob.getValue());
+		}
+		return modules;
+	}
+
+	/**
+	 * Find the files whose classes may have moved to another module: the removed files and the added files of
+	 * different modules with the same name or with a rename hint between them.
+	 */
+	void findCrossModuleMoves(Collection<String> filesBefore, Collection<String> filesCurrent, Map<String, String> renamedFilesHint,
+			Set<String> movedFilesBefore, Set<String> movedFilesCurrent) {
+		Set<String> before = new HashSet<String>(filesBefore);
+		Map<String, List<String>> addedFilesByName = new HashMap<String, List<String>>();
+		for (String file : filesCurrent) {
+			if (!before.contains(file)) {
+				String name = file.substring(file.lastIndexOf('/') + 1);
+				List<String> addedFiles = addedFilesByName.get(name);
+				if (addedFiles == null) {
+					addedFiles = new ArrayList<String>();
+					addedFilesByName.put(name, addedFiles);
+				}
+				addedFiles.add(file);
+			}
+		}
+		Set<String> current = new HashSet<String>(filesCurrent);
+		for (String file : filesBefore) {
+			if (current.contains(file)) {
+				continue;
+			}
+			String module = moduleOf(file);
+			String renamedFile = renamedFilesHint.get(file);
+			if (renamedFile != null && current.contains(renamedFile) && !moduleOf(renamedFile).equals(module)) {
+				movedFilesBefore.add(file);
+				movedFilesCurrent.add(renamedFile);
+			}
+			List<String> addedFiles = addedFilesByName.get(file.substring(file.lastIndexOf('/') + 1));
+			if (addedFiles != null) {
+				for (String addedFile : addedFiles) {
+					if (!moduleOf(addedFile).equals(module)) {
+						movedFilesBefore.add(file);
+						movedFilesCurrent.add(addedFile);
+					}
+				}
+			}
+		}
+	}
+}
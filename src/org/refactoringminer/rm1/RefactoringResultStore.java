@@ -0,0 +1,112 @@
+package org.refactoringminer.rm1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * Persistent store of the refactorings detected in each commit, keyed by the commit id and by a key of the
+ * configuration that detected them, so that a commit analyzed again with the same configuration is answered
+ * without parsing and diffing it. The results of each configuration are kept in their own folder, so a change of
+ * configuration never reads the results of another one.
+ *
+ * Only the type, name and description of the refactorings are stored: the refactorings loaded from the store are
+ * {@link StoredRefactoring}s, not the objects of the model. Entries are written to a temporary file and moved in
+ * place, so the store may be shared by several miners and processes.
+ */
+public class RefactoringResultStore {
+
+	private final File folder;
+	private long hitCount;
+	private long missCount;
+
+	public RefactoringResultStore(File folder) {
+		this.folder = folder;
+	}
+
+	private File file(String configurationKey, String commitId) {
+		// spread the entries over folders as git does with loose objects
+		return new File(new File(new File(folder, configurationKey), commitId.substring(0, 2)), commitId.substring(2));
+	}
+
+	/**
+	 * @return The refactorings stored for the commit, or null if the commit was not analyzed with this configuration.
+	 */
+	public List<Refactoring> load(String commitId, String configurationKey) throws IOException {
+		File file = file(configurationKey, commitId);
+		if (!file.exists()) {
+			countMiss();
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			int count = in.readInt();
+			List<Refactoring> refactorings = new ArrayList<Refactoring>(count);
+			for (int i = 0; i < count; i++) {
+				RefactoringType type = RefactoringType.valueOf(in.readUTF());
+				String name = in.readUTF();
+				byte[] description = new byte[in.readInt()];
+				in.readFully(description);
+				refactorings.add(new StoredRefactoring(type, name, new String(description, StandardCharsets.UTF_8)));
+			}
+			countHit();
+			return refactorings;
+		} catch (IllegalArgumentException e) {
+			// a refactoring type that no longer exists
+			countMiss();
+			return null;
+		}
+	}
+
+	public void store(String commitId, String configurationKey, List<Refactoring> refactorings) throws IOException {
+		File file = file(configurationKey, commitId);
+		File parent = file.getParentFile();
+		parent.mkdirs();
+		File temporaryFile = File.createTempFile(commitId, ".tmp", parent);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+				out.writeInt(refactorings.size());
+				for (Refactoring refactoring : refactorings) {
+					out.writeUTF(refactoring.getRefactoringType().name());
+					out.writeUTF(refactoring.getName());
+					byte[] description = refactoring.toString().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(description.length);
+					out.write(description);
+				}
+			}
+			try {
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile.toPath());
+		}
+	}
+
+	private synchronized void countHit() {
+		hitCount++;
+	}
+
+	private synchronized void countMiss() {
+		missCount++;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Result store %s [Hits: %d, Misses: %d]", folder, hitCount, missCount);
+	}
+}
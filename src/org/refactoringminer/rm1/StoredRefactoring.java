@@ -0,0 +1,32 @@
+package org.refactoringminer.rm1;
+
+import org.refactoringminer.api.Refactoring;
+import org.refactoringminer.api.RefactoringType;
+
+/**
+ * A refactoring loaded from a {@link RefactoringResultStore}, which only knows its type, name and description.
+ */
+public class StoredRefactoring implements Refactoring {
+
+	private final RefactoringType refactoringType;
+	private final String name;
+	private final String description;
+
+	public StoredRefactoring(RefactoringType refactoringType, String name, String description) {
+		this.refactoringType = refactoringType;
+		this.name = name;
+		this.description = description;
+	}
+
+	public RefactoringType getRefactoringType() {
+		return refactoringType;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String toString() {
+		return description;
+	}
+}
@@ -0,0 +1,182 @@
+package org.refactoringminer.rm1;
+
+import gr.uom.java.xmi.UMLModel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * LRU cache of the classes, generalizations and realizations parsed from a file version, keyed by the
+ * path of the file and the id of its blob. It is bounded both by the number of file versions and by their
+ * total source length, which is used as an estimate of the heap occupied by their models.
+ *
+ * The code fragments of a model keep state while they are mapped, so a cached model must not be diffed by
+ * two analyses at the same time. Models are therefore handed out through a {@link Lease}: a model taken by
+ * a lease leaves the cache and returns to it only when the lease is released, with the state of its code
+ * fragments cleared.
+ */
+public class UMLClassCache {
+
+	private final int maximumEntries;
+	private final long maximumSourceLength;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private long sourceLength;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public UMLClassCache(int maximumEntries, long maximumSourceLength) {
+		if (maximumEntries < 1 || maximumSourceLength < 1) {
+			throw new IllegalArgumentException("Cache bounds must be positive");
+		}
+		this.maximumEntries = maximumEntries;
+		this.maximumSourceLength = maximumSourceLength;
+	}
+
+	public Lease lease() {
+		return new Lease();
+	}
+
+	private synchronized Entry take(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		sourceLength -= entry.sourceLength;
+		return entry;
+	}
+
+	private synchronized void put(Key key, Entry entry) {
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			sourceLength -= previous.sourceLength;
+		}
+		sourceLength += entry.sourceLength;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (eldest.hasNext() && (entries.size() > maximumEntries || sourceLength > maximumSourceLength)) {
+			sourceLength -= eldest.next().sourceLength;
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+
+	private void putBack(Key key, Entry entry) {
+		// the model may have been left in the middle of a mapping, e.g. by a timeout
+		entry.fileModel.clearMappingState();
+		put(key, entry);
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("UMLClassCache [Entries: %d, Hits: %d, Misses: %d, Evictions: %d]", entries.size(), hitCount, missCount, evictionCount);
+	}
+
+	/**
+	 * The models used by one analysis. They are returned to the cache when the analysis is over.
+	 */
+	public class Lease {
+		private final List<Key> keys = new ArrayList<Key>();
+		private final List<Entry> leased = new ArrayList<Entry>();
+
+		private Lease() {}
+
+		/**
+		 * @return The model of the given file version, or null if it has to be parsed.
+		 */
+		public UMLModel get(String filePath, ObjectId blobId) {
+			Key key = new Key(filePath, blobId);
+			Entry entry = take(key);
+			if (entry == null) {
+				return null;
+			}
+			keys.add(key);
+			leased.add(entry);
+			return entry.fileModel;
+		}
+
+		/**
+		 * Register the model parsed from a file version, so that it is cached when the lease is released.
+		 */
+		public void put(String filePath, ObjectId blobId, UMLModel fileModel, long sourceLength) {
+			keys.add(new Key(filePath, blobId));
+			leased.add(new Entry(fileModel, sourceLength));
+		}
+
+		public void release() {
+			for (int i = 0; i < keys.size(); i++) {
+				putBack(keys.get(i), leased.get(i));
+			}
+			keys.clear();
+			leased.clear();
+		}
+
+		/**
+		 * Return the model of a file version to the cache, when it is no longer used while the lease is kept.
+		 */
+		public void release(String filePath, ObjectId blobId) {
+			int i = keys.indexOf(new Key(filePath, blobId));
+			if (i != -1) {
+				putBack(keys.remove(i), leased.remove(i));
+			}
+		}
+	}
+
+	private static class Entry {
+		private final UMLModel fileModel;
+		private final long sourceLength;
+
+		private Entry(UMLModel fileModel, long sourceLength) {
+			this.fileModel = fileModel;
+			this.sourceLength = sourceLength;
+		}
+	}
+
+	private static class Key {
+		private final String filePath;
+		private final ObjectId blobId;
+
+		private Key(String filePath, ObjectId blobId) {
+			this.filePath = filePath;
+			this.blobId = blobId.copy();
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * blobId.hashCode() + filePath.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o instanceof Key) {
+				Key key = (Key) o;
+				return blobId.equals(key.blobId) && filePath.equals(key.filePath);
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package org.refactoringminer.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+
+/**
+ * Append-only journal of the commits whose analysis completed, so that an interrupted run can be resumed by
+ * skipping them. Each commit is appended as its 20 raw bytes as soon as it completes, and the file is synced to
+ * the disk at most every {@code syncInterval} milliseconds.
+ *
+ * The commits of the journal are held in memory as a hash set of the first 8 bytes of their ids, so looking up a
+ * commit during a revision walk takes constant time and 16 bytes per commit at most. When the journal is opened,
+ * it is compacted if it holds the same commit more than once (e.g. after two runs shared it) or ends with a record
+ * torn by a crash. It is not compacted while it is open: a journal never appends a commit it holds already, so the
+ * file only grows duplicates when several runs append to it, and rewriting it under one of them would drop the
+ * records the others append meanwhile.
+ */
+public class CommitJournal implements Closeable {
+
+	private static final int RECORD_LENGTH = Constants.OBJECT_ID_LENGTH;
+
+	private final File file;
+	private final long syncInterval;
+	private final byte[] record = new byte[RECORD_LENGTH];
+	private PrefixSet commits = new PrefixSet();
+	private FileOutputStream out;
+	private long lastSync = System.currentTimeMillis();
+	private boolean dirty = false;
+
+	public CommitJournal(File file, long syncInterval) throws IOException {
+		this.file = file;
+		this.syncInterval = syncInterval;
+		if (file.exists() && !load()) {
+			compact();
+		}
+		this.out = new FileOutputStream(file, true);
+	}
+
+	/**
+	 * @return True if every record of the file is a complete record of a distinct commit.
+	 */
+	private boolean load() throws IOException {
+		long records = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+			while (true) {
+				in.readFully(record);
+				commits.add(prefix(record));
+				records++;
+			}
+		} catch (EOFException e) {
+			// the end of the journal
+		}
+		return records == commits.size() && file.length() == records * RECORD_LENGTH;
+	}
+
+	/**
+	 * Rewrite the journal with one complete record per commit.
+	 */
+	private void compact() throws IOException {
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		PrefixSet written = new PrefixSet();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+				OutputStream compacted = new BufferedOutputStream(new FileOutputStream(temporaryFile), 65536)) {
+			while (true) {
+				in.readFully(record);
+				if (written.add(prefix(record))) {
+					compacted.write(record);
+				}
+			}
+		} catch (EOFException e) {
+			// the end of the journal, or a record torn by a crash
+		}
+		try {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		commits = written;
+	}
+
+	private static long prefix(byte[] id) {
+		long prefix = 0;
+		for (int i = 0; i < 8; i++) {
+			prefix = (prefix << 8) | (id[i] & 0xff);
+		}
+		return prefix;
+	}
+
+	private long prefix(AnyObjectId commitId) {
+		commitId.copyRawTo(record, 0);
+		return prefix(record);
+	}
+
+	public synchronized boolean contains(AnyObjectId commitId) {
+		return commits.contains(prefix(commitId));
+	}
+
+	/**
+	 * Record the completion of the analysis of a commit.
+	 */
+	public synchronized void add(AnyObjectId commitId) throws IOException {
+		if (commits.add(prefix(commitId))) {
+			// unbuffered, so that the record is handed to the operating system before the next commit is analyzed
+			out.write(record);
+			dirty = true;
+			long now = System.currentTimeMillis();
+			if (now - lastSync >= syncInterval) {
+				sync();
+				lastSync = now;
+			}
+		}
+	}
+
+	/**
+	 * Force the records written so far to the disk.
+	 */
+	public synchronized void sync() throws IOException {
+		if (dirty) {
+			out.getChannel().force(false);
+			dirty = false;
+		}
+	}
+
+	public synchronized int size() {
+		return commits.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Open addressing hash set of longs.
+	 */
+	private static class PrefixSet {
+		private long[] slots = new long[1024];
+		private boolean containsZero = false;
+		private int size = 0;
+
+		private boolean contains(long value) {
+			if (value == 0) {
+				return containsZero;
+			}
+			for (int i = slot(value, slots.length); slots[i] != 0; i = (i + 1) & (slots.length - 1)) {
+				if (slots[i] == value) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean add(long value) {
+			if (value == 0) {
+				if (containsZero) {
+					return false;
+				}
+				containsZero = true;
+				size++;
+				return true;
+			}
+			if (contains(value)) {
+				return false;
+			}
+			if (2 * (size + 1) > slots.length) {
+				long[] oldSlots = slots;
+				slots = new long[2 * oldSlots.length];
+				for (long oldValue : oldSlots) {
+					if (oldValue != 0) {
+						insert(oldValue);
+					}
+				}
+			}
+			insert(value);
+			size++;
+			return true;
+		}
+
+		private void insert(long value) {
+			int i = slot(value, slots.length);
+			while (slots[i] != 0) {
+				i = (i + 1) & (slots.length - 1);
+			}
+			slots[i] = value;
+		}
+
+		private static int slot(long value, int length) {
+			// the ids are hashes already, so their bits are evenly distributed
+			return (int) (value ^ (value >>> 32)) & (length - 1);
+		}
+
+		private int size() {
+			return size;
+		}
+	}
+}
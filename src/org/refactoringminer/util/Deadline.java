@@ -0,0 +1,82 @@
+package org.refactoringminer.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.refactoringminer.api.AnalysisPhase;
+import org.refactoringminer.api.CommitTimeoutException;
+
+/**
+ * Time budget of the commit analyzed by the current thread. The parsing and diffing code calls
+ * {@link #check(AnalysisPhase)} at regular points, so an expired analysis stops at the next of them.
+ */
+public class Deadline {
+
+	private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+	private final long startTime;
+	private final long endTime;
+
+	private Deadline(long startTime, long endTime) {
+		this.startTime = startTime;
+		this.endTime = endTime;
+	}
+
+	public static void start(long timeoutMillis) {
+		long now = System.nanoTime();
+		current.set(new Deadline(now, now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+	}
+
+	public static void clear() {
+		current.remove();
+	}
+
+	/**
+	 * @return The time budget of the current thread, or null.
+	 */
+	public static Deadline get() {
+		return current.get();
+	}
+
+	/**
+	 * Share a time budget with the current thread, e.g. for a part of the analysis of a commit run on another thread.
+	 */
+	public static void set(Deadline deadline) {
+		if (deadline != null) {
+			current.set(deadline);
+		} else {
+			current.remove();
+		}
+	}
+
+	/**
+	 * @return A task running {@code task} within the time budget of the current thread, for another thread.
+	 */
+	public static <T> Callable<T> propagate(final Callable<T> task) {
+		final Deadline deadline = current.get();
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				set(deadline);
+				try {
+					return task.call();
+				} finally {
+					clear();
+				}
+			}
+		};
+	}
+
+	/**
+	 * @throws CommitTimeoutException if the time budget of the current thread has expired.
+	 */
+	public static void check(AnalysisPhase phase) {
+		Deadline deadline = current.get();
+		if (deadline != null) {
+			long now = System.nanoTime();
+			if (now - deadline.endTime > 0) {
+				throw new CommitTimeoutException(phase, TimeUnit.NANOSECONDS.toMillis(now - deadline.startTime));
+			}
+		}
+	}
+}
@@ -2,27 +2,38 @@ package org.refactoringminer.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffEntry.ChangeType;
-import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryBuilder;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.RevWalkUtils;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.TrackingRefUpdate;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.refactoringminer.api.CommitFilter;
 import org.refactoringminer.api.GitService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +43,48 @@ public class GitServiceImpl implements GitService {
 	private static final String REMOTE_REFS_PREFIX = "refs/remotes/origin/";
 	Logger logger = LoggerFactory.getLogger(GitServiceImpl.class);
 
-	DefaultCommitsFilter commitsFilter = new DefaultCommitsFilter();
+	private static final int RENAME_SCORE = 62;
+	public static final int DEFAULT_RENAME_PAIR_BUDGET = 100000;
+
+	DefaultCommitsFilter commitsFilter = new DefaultCommitsFilter(true, true);
+	private int renamePairBudget = DEFAULT_RENAME_PAIR_BUDGET;
+	private CommitJournal commitJournal = null;
+	private CommitFilter commitFilter = null;
+
+	/**
+	 * The maximum number of deleted and added file pairs compared by content when looking for renamed files
+	 * in a commit. Files are first paired by name, so the budget is mostly spent on renamed types.
+	 */
+	public void setRenamePairBudget(int renamePairBudget) {
+		if (renamePairBudget < 0) {
+			throw new IllegalArgumentException("The rename pair budget cannot be negative");
+		}
+		this.renamePairBudget = renamePairBudget;
+	}
+
+	/**
+	 * Leave the commits of the journal out of the revision walks, as if they were already analyzed.
+	 */
+	public void setCommitJournal(CommitJournal commitJournal) {
+		this.commitJournal = commitJournal;
+	}
+
+	/**
+	 * Leave the commits not selected by the filter out of the revision walks. Pass null to walk all commits.
+	 */
+	public void setCommitFilter(CommitFilter commitFilter) {
+		this.commitFilter = commitFilter;
+	}
+
+	private RevFilter revFilter() {
+		if (commitFilter == null) {
+			return commitsFilter;
+		}
+		// merge commits and journaled commits are excluded before the filter reads the commit, and the handler
+		// is only asked to skip the commits selected by the filter
+		return AndRevFilter.create(new RevFilter[] {
+				new DefaultCommitsFilter(true, false), commitFilter.toRevFilter(), new DefaultCommitsFilter(false, true)});
+	}
 	
 	@Override
 	public Repository cloneIfNotExists(String projectPath, String cloneUrl/*, String branch*/) throws Exception {
@@ -185,7 +237,7 @@ public class GitServiceImpl implements GitService {
 		for (ObjectId oldRef : currentRemoteRefs) {
 			walk.markUninteresting(walk.parseCommit(oldRef));
 		}
-		walk.setRevFilter(commitsFilter);
+		walk.setRevFilter(revFilter());
 		return walk;
 	}
 
@@ -208,7 +260,7 @@ public class GitServiceImpl implements GitService {
 		for (ObjectId newRef : currentRemoteRefs) {
 			walk.markStart(walk.parseCommit(newRef));
 		}
-		walk.setRevFilter(commitsFilter);
+		walk.setRevFilter(revFilter());
 		return walk;
 	}
 	
@@ -227,7 +279,7 @@ public class GitServiceImpl implements GitService {
             walk.markUninteresting(walk.parseCommit(endCommit));
         }
 		
-        walk.setRevFilter(commitsFilter);
+        walk.setRevFilter(revFilter());
 		return walk;
 	}
 	
@@ -244,7 +296,7 @@ public class GitServiceImpl implements GitService {
             walk.markUninteresting(walk.parseCommit(endCommit));
         }
 		
-		walk.setRevFilter(commitsFilter);
+		walk.setRevFilter(revFilter());
 		return walk;
 	}
 
@@ -253,9 +305,26 @@ public class GitServiceImpl implements GitService {
 	}
 
 	private class DefaultCommitsFilter extends RevFilter {
+		private final boolean regularCommits;
+		private final boolean unanalyzedCommits;
+
+		DefaultCommitsFilter(boolean regularCommits, boolean unanalyzedCommits) {
+			this.regularCommits = regularCommits;
+			this.unanalyzedCommits = unanalyzedCommits;
+		}
+
 		@Override
 		public final boolean include(final RevWalk walker, final RevCommit c) {
-			return c.getParentCount() == 1 && !isCommitAnalyzed(c.getName());
+			if (regularCommits) {
+				if (c.getParentCount() != 1) {
+					return false;
+				}
+				// the journal is looked up by the raw id, without formatting the name of every commit
+				if (commitJournal != null && commitJournal.contains(c)) {
+					return false;
+				}
+			}
+			return !unanalyzedCommits || !isCommitAnalyzed(c.getName());
 		}
 
 		@Override
@@ -280,14 +349,14 @@ public class GitServiceImpl implements GitService {
 	        ObjectId newTree = current.getTree();
         	final TreeWalk tw = new TreeWalk(repository);
         	tw.setRecursive(true);
+        	// skip unchanged subtrees and non-java files during the walk, so that only java files reach the rename detector
+        	tw.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, javaFileFilter()));
         	tw.addTree(oldTree);
         	tw.addTree(newTree);
 
-        	final RenameDetector rd = new RenameDetector(repository);
-        	rd.setRenameScore(62);
-        	rd.addAll(DiffEntry.scan(tw));
+        	final JavaRenameDetector rd = new JavaRenameDetector(repository, RENAME_SCORE, renamePairBudget);
 
-        	for (DiffEntry diff : rd.compute(tw.getObjectReader(), null)) {
+        	for (DiffEntry diff : rd.compute(tw.getObjectReader(), DiffEntry.scan(tw))) {
         		ChangeType changeType = diff.getChangeType();
         		String oldPath = diff.getOldPath();
         		String newPath = diff.getNewPath();
@@ -301,7 +370,7 @@ public class GitServiceImpl implements GitService {
 	        			javaFilesCurrent.add(newPath);
 	        		}
         		}
-        		if (changeType == ChangeType.RENAME && diff.getScore() >= rd.getRenameScore()) {
+        		if (changeType == ChangeType.RENAME && diff.getScore() >= RENAME_SCORE) {
         			if (isJavafile(oldPath) && isJavafile(newPath)) {
         				renamedFilesHint.put(oldPath, newPath);
         			}
@@ -310,7 +379,101 @@ public class GitServiceImpl implements GitService {
         }
 	}
 
+	@Override
+	public void populateFileContents(Repository repository, RevCommit commit, List<String> filePaths, Map<String, String> fileContents) throws Exception {
+		Map<String, ObjectId> blobIds = new LinkedHashMap<String, ObjectId>();
+		populateBlobIds(repository, commit, filePaths, blobIds);
+		populateFileContents(repository, blobIds, fileContents);
+	}
+
+	@Override
+	public void populateBlobIds(Repository repository, RevCommit commit, List<String> filePaths, Map<String, ObjectId> blobIds) throws Exception {
+		if (filePaths.isEmpty()) {
+			return;
+		}
+		Map<String, ObjectId> blobIdsInTree = new HashMap<String, ObjectId>();
+		try (TreeWalk treeWalk = new TreeWalk(repository)) {
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(PathFilterGroup.createFromStrings(filePaths));
+			while (treeWalk.next()) {
+				blobIdsInTree.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+			}
+		}
+		for (String filePath : filePaths) {
+			ObjectId blobId = blobIdsInTree.get(filePath);
+			if (blobId != null) {
+				blobIds.put(filePath, blobId);
+			}
+		}
+	}
+
+	@Override
+	public void populateJavaBlobIds(Repository repository, RevCommit commit, Map<String, ObjectId> blobIds) throws Exception {
+		try (TreeWalk treeWalk = new TreeWalk(repository)) {
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(javaFileFilter());
+			while (treeWalk.next()) {
+				blobIds.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+			}
+		}
+	}
+
+	@Override
+	public void populateFileContents(Repository repository, Map<String, ObjectId> blobIds, Map<String, String> fileContents) throws Exception {
+		try (ObjectReader reader = repository.newObjectReader()) {
+			for (Map.Entry<String, ObjectId> blob : blobIds.entrySet()) {
+				ObjectLoader loader = reader.open(blob.getValue());
+				fileContents.put(blob.getKey(), new String(loader.getBytes(), StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	@Override
+	public void populateDirectories(Repository repository, RevCommit commit, Set<String> directories, Set<String> repositoryDirectories) throws Exception {
+		List<String> directoryPaths = new ArrayList<String>();
+		for (String directory : directories) {
+			if (!directory.isEmpty()) {
+				directoryPaths.add(directory);
+			}
+		}
+		if (directoryPaths.isEmpty()) {
+			return;
+		}
+		try (TreeWalk treeWalk = new TreeWalk(repository)) {
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(false);
+			treeWalk.setFilter(PathFilterGroup.createFromStrings(directoryPaths));
+			while (treeWalk.next()) {
+				if (treeWalk.isSubtree()) {
+					String path = treeWalk.getPathString();
+					if (directories.contains(path)) {
+						repositoryDirectories.add(path);
+					}
+					if (containsSubdirectory(directoryPaths, path)) {
+						treeWalk.enterSubtree();
+					}
+				}
+			}
+		}
+	}
+
+	private boolean containsSubdirectory(List<String> directoryPaths, String path) {
+		String prefix = path + "/";
+		for (String directory : directoryPaths) {
+			if (directory.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private boolean isJavafile(String path) {
 		return path.endsWith(".java");
 	}
+
+	private TreeFilter javaFileFilter() {
+		return PathSuffixFilter.create(".java");
+	}
 }
@@ -0,0 +1,211 @@
+package org.refactoringminer.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Pairs the deleted and added java files of a tree diff into renames.
+ *
+ * JGit compares the content of every deleted file with every added file, which is quadratic in commits that
+ * move many files. Since a java file is named after its top-level type, candidates are first paired by file
+ * name, preferring the ones sharing the longest package suffix, and only these pairs are compared. The files
+ * left unpaired are compared by content as a whole only if the number of pairs fits in the remaining budget,
+ * otherwise only renames of identical files are detected among them.
+ */
+class JavaRenameDetector {
+
+	private final Repository repository;
+	private final int renameScore;
+	private int pairBudget;
+
+	JavaRenameDetector(Repository repository, int renameScore, int pairBudget) {
+		this.repository = repository;
+		this.renameScore = renameScore;
+		this.pairBudget = pairBudget;
+	}
+
+	/**
+	 * @return The given entries, in which the deleted and added files found to be renames are replaced by
+	 * RENAME entries.
+	 */
+	List<DiffEntry> compute(ObjectReader reader, List<DiffEntry> entries) throws IOException {
+		List<DiffEntry> result = new ArrayList<DiffEntry>();
+		Map<String, List<DiffEntry>> deletedByName = new LinkedHashMap<String, List<DiffEntry>>();
+		Map<String, List<DiffEntry>> addedByName = new LinkedHashMap<String, List<DiffEntry>>();
+		for (DiffEntry entry : entries) {
+			if (entry.getChangeType() == ChangeType.DELETE) {
+				group(deletedByName, fileName(entry.getOldPath()), entry);
+			} else if (entry.getChangeType() == ChangeType.ADD) {
+				group(addedByName, fileName(entry.getNewPath()), entry);
+			} else {
+				result.add(entry);
+			}
+		}
+
+		Set<DiffEntry> paired = new HashSet<DiffEntry>();
+		for (Map.Entry<String, List<DiffEntry>> deletedGroup : deletedByName.entrySet()) {
+			List<DiffEntry> addedGroup = addedByName.get(deletedGroup.getKey());
+			if (addedGroup != null) {
+				pairByName(reader, deletedGroup.getValue(), addedGroup, paired, result);
+			}
+		}
+
+		List<DiffEntry> leftovers = new ArrayList<DiffEntry>();
+		int deletedLeftovers = 0;
+		int addedLeftovers = 0;
+		for (List<DiffEntry> group : deletedByName.values()) {
+			for (DiffEntry entry : group) {
+				if (!paired.contains(entry)) {
+					leftovers.add(entry);
+					deletedLeftovers++;
+				}
+			}
+		}
+		for (List<DiffEntry> group : addedByName.values()) {
+			for (DiffEntry entry : group) {
+				if (!paired.contains(entry)) {
+					leftovers.add(entry);
+					addedLeftovers++;
+				}
+			}
+		}
+		if (deletedLeftovers > 0 && addedLeftovers > 0) {
+			RenameDetector rd = newRenameDetector();
+			if ((long) deletedLeftovers * addedLeftovers > pairBudget) {
+				// over the budget JGit still pairs identical files, but skips the content similarity
+				rd.setRenameLimit(1);
+			} else {
+				pairBudget -= deletedLeftovers * addedLeftovers;
+			}
+			rd.addAll(leftovers);
+			result.addAll(rd.compute(reader, null));
+		} else {
+			result.addAll(leftovers);
+		}
+		Collections.sort(result, DIFF_COMPARATOR);
+		return result;
+	}
+
+	private void pairByName(ObjectReader reader, List<DiffEntry> deleted, List<DiffEntry> added, Set<DiffEntry> paired, List<DiffEntry> result) throws IOException {
+		if ((long) deleted.size() * added.size() > pairBudget) {
+			return;
+		}
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (DiffEntry deletedEntry : deleted) {
+			for (DiffEntry addedEntry : added) {
+				candidates.add(new Candidate(deletedEntry, addedEntry));
+			}
+		}
+		Collections.sort(candidates);
+		for (Candidate candidate : candidates) {
+			if (pairBudget == 0) {
+				return;
+			}
+			if (paired.contains(candidate.deleted) || paired.contains(candidate.added)) {
+				continue;
+			}
+			pairBudget--;
+			RenameDetector rd = newRenameDetector();
+			rd.add(candidate.deleted);
+			rd.add(candidate.added);
+			for (DiffEntry entry : rd.compute(reader, null)) {
+				if (entry.getChangeType() == ChangeType.RENAME) {
+					paired.add(candidate.deleted);
+					paired.add(candidate.added);
+					result.add(entry);
+				}
+			}
+		}
+	}
+
+	private RenameDetector newRenameDetector() {
+		RenameDetector rd = new RenameDetector(repository);
+		rd.setRenameScore(renameScore);
+		return rd;
+	}
+
+	private static void group(Map<String, List<DiffEntry>> groups, String name, DiffEntry entry) {
+		List<DiffEntry> group = groups.get(name);
+		if (group == null) {
+			group = new ArrayList<DiffEntry>();
+			groups.put(name, group);
+		}
+		group.add(entry);
+	}
+
+	private static String fileName(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+		private final DiffEntry deleted;
+		private final DiffEntry added;
+		private final int commonPackageSuffix;
+
+		private Candidate(DiffEntry deleted, DiffEntry added) {
+			this.deleted = deleted;
+			this.added = added;
+			this.commonPackageSuffix = commonPackageSuffix(deleted.getOldPath(), added.getNewPath());
+		}
+
+		private static int commonPackageSuffix(String oldPath, String newPath) {
+			String[] oldSegments = oldPath.split("/");
+			String[] newSegments = newPath.split("/");
+			// the file names are equal, so the comparison starts from the enclosing folders
+			int common = 0;
+			for (int i = oldSegments.length - 2, j = newSegments.length - 2; i >= 0 && j >= 0; i--, j--) {
+				if (!oldSegments[i].equals(newSegments[j])) {
+					break;
+				}
+				common++;
+			}
+			return common;
+		}
+
+		public int compareTo(Candidate other) {
+			return other.commonPackageSuffix - this.commonPackageSuffix;
+		}
+	}
+
+	// the order in which JGit reports the entries of a tree diff
+	private static final Comparator<DiffEntry> DIFF_COMPARATOR = new Comparator<DiffEntry>() {
+		public int compare(DiffEntry a, DiffEntry b) {
+			int cmp = nameOf(a).compareTo(nameOf(b));
+			if (cmp == 0) {
+				cmp = sortOf(a.getChangeType()) - sortOf(b.getChangeType());
+			}
+			return cmp;
+		}
+
+		private String nameOf(DiffEntry entry) {
+			if (entry.getChangeType() == ChangeType.DELETE) {
+				return entry.getOldPath();
+			}
+			return entry.getNewPath();
+		}
+
+		private int sortOf(ChangeType changeType) {
+			switch (changeType) {
+			case DELETE:
+				return 1;
+			case ADD:
+				return 2;
+			default:
+				return 10;
+			}
+		}
+	};
+}